@@ -0,0 +1,19 @@
+package com.nisum.users.annotations;
+
+import com.nisum.users.utils.ShardedUuidGenerator;
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a random UUID identifier whose 16 most significant bits carry the routing hash of the
+ * user's email, so the shard holding a user can be derived from its identifier alone.
+ */
+@IdGeneratorType(ShardedUuidGenerator.class)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardedUuid {
+}
@@ -21,6 +21,13 @@ public @interface ValidPassword {
      */
     String message() default "Invalid password";
 
+    /**
+     * Specifies whether a null value is accepted, for fields that may be omitted such as in partial updates.
+     *
+     * @return true if a null password is considered valid
+     */
+    boolean optional() default false;
+
     /**
      * Specifies the validation groups with which the constraint declaration is associated.
      *
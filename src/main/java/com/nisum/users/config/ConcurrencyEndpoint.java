@@ -0,0 +1,31 @@
+package com.nisum.users.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint reporting the current limit, requests in flight and rejections of each endpoint class.
+ */
+@Component
+@Endpoint(id = "concurrency")
+@RequiredArgsConstructor
+public class ConcurrencyEndpoint {
+
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+
+    @ReadOperation
+    public Map<String, Limit> limits() {
+        Map<String, Limit> limits = new LinkedHashMap<>();
+        concurrencyLimitFilter.limiters().forEach((name, limiter) ->
+                limits.put(name, new Limit(limiter.getLimit(), limiter.getInFlight(), limiter.getRejected())));
+        return limits;
+    }
+
+    public record Limit(int limit, int inFlight, long rejected) {
+    }
+}
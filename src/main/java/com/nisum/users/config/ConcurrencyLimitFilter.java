@@ -0,0 +1,154 @@
+package com.nisum.users.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.exceptions.ErrorBodies;
+import com.nisum.users.utils.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounds the requests in flight per class of endpoint with an {@link AdaptiveConcurrencyLimiter}, so that
+ * under overload the excess requests are rejected at once with 503 and a Retry-After header instead of
+ * queueing on the Tomcat pool. Cheap reads by id, the user list and the CPU-heavy writes and logins have
+ * their own limits, so a burst of logins does not starve the reads. The export and the change feed are
+ * long-lived streams completed asynchronously and are not limited. The filter runs after the server
+ * observation, so rejections are still measured, and before the security chain.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String USERS_PATH = "/api/v1/users";
+
+    private final boolean enabled;
+    private final String retryAfterSeconds;
+    private final byte[] rejectedBody;
+    private final AdaptiveConcurrencyLimiter read;
+    private final AdaptiveConcurrencyLimiter list;
+    private final AdaptiveConcurrencyLimiter write;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters;
+
+    public ConcurrencyLimitFilter(ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${concurrency.enabled:true}") boolean enabled,
+                                  @Value("${concurrency.retry-after-seconds:1}") int retryAfterSeconds,
+                                  @Value("${concurrency.min-limit:2}") int minLimit,
+                                  @Value("${concurrency.read.initial-limit:100}") int readInitialLimit,
+                                  @Value("${concurrency.read.max-limit:1000}") int readMaxLimit,
+                                  @Value("${concurrency.list.initial-limit:20}") int listInitialLimit,
+                                  @Value("${concurrency.list.max-limit:200}") int listMaxLimit,
+                                  @Value("${concurrency.write.initial-limit:16}") int writeInitialLimit,
+                                  @Value("${concurrency.write.max-limit:200}") int writeMaxLimit) {
+        this.enabled = enabled;
+        this.retryAfterSeconds = Integer.toString(retryAfterSeconds);
+        this.rejectedBody = ErrorBodies.render(objectMapper, HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                "Too many concurrent requests, retry later");
+        this.read = new AdaptiveConcurrencyLimiter(readInitialLimit, minLimit, readMaxLimit);
+        this.list = new AdaptiveConcurrencyLimiter(listInitialLimit, minLimit, listMaxLimit);
+        this.write = new AdaptiveConcurrencyLimiter(writeInitialLimit, minLimit, writeMaxLimit);
+        Map<String, AdaptiveConcurrencyLimiter> limiters = new LinkedHashMap<>();
+        limiters.put("read", read);
+        limiters.put("list", list);
+        limiters.put("write", write);
+        this.limiters = Collections.unmodifiableMap(limiters);
+        limiters.forEach((name, limiter) -> register(meterRegistry, name, limiter));
+    }
+
+    /**
+     * Returns the limiters by endpoint class, for the actuator endpoint.
+     *
+     * @return the read, list and write limiters
+     */
+    public Map<String, AdaptiveConcurrencyLimiter> limiters() {
+        return limiters;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || limiter(request) == null;
+    }
+
+    /**
+     * Runs the request if its limiter grants a permit, measuring how long it holds it, or rejects it
+     * with 503 and a precomputed body otherwise.
+     *
+     * @param request the HttpServletRequest object, providing request information for HTTP servlets
+     * @param response the HttpServletResponse object, assisting a servlet in sending a response to the client
+     * @param filterChain the FilterChain object, allowing the filter to pass on the request and response to the next entity in the chain
+     * @throws ServletException if an exception occurs that interferes with the filter's operation
+     * @throws IOException if an I/O error occurs during the handling of the request
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter limiter = limiter(request);
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(rejectedBody.length);
+            response.getOutputStream().write(rejectedBody);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Classifies a request by its method and path under the users API.
+     *
+     * @param request the request to classify
+     * @return the limiter of its class, or null if the request is not limited
+     */
+    private AdaptiveConcurrencyLimiter limiter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(USERS_PATH)) return null;
+        String rest = path.substring(USERS_PATH.length());
+        String method = request.getMethod();
+        if (rest.isEmpty() || rest.equals("/")) {
+            if (method.equals("GET")) return list;
+            if (method.equals("POST")) return write;
+            return null;
+        }
+        if (rest.indexOf('/', 1) >= 0) return null;
+        if (rest.equals("/login")) return method.equals("POST") ? write : null;
+        if (rest.equals("/export") || rest.equals("/changes")) return null;
+        if (method.equals("GET")) return read;
+        if (method.equals("PATCH")) return write;
+        return null;
+    }
+
+    private static void register(MeterRegistry meterRegistry, String name, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("http.server.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("class", name)
+                .register(meterRegistry);
+        Gauge.builder("http.server.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("class", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("http.server.concurrency.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .tag("class", name)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,201 @@
+package com.nisum.users.config;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Actuator endpoint running an on-demand JDK Flight Recorder recording, with the custom events of the
+ * application. {@code POST /actuator/jfr} starts a recording with the {@code default} or {@code profile}
+ * settings, for at most {@code profiling.max-duration-seconds} and {@code profiling.max-size-mb};
+ * {@code GET} reports its state; and {@code DELETE} stops it, if it has not stopped on its own, and
+ * streams the {@code .jfr} file, which is deleted once sent. Only one recording runs at a time. The
+ * environment variables and system properties are left out of the recording, since they may hold secrets.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class FlightRecordingEndpoint {
+
+    private static final Set<String> PROFILES = Set.of("default", "profile");
+    private static final Set<String> EXCLUDED_EVENTS = Set.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty");
+
+    private final long defaultDurationSeconds;
+    private final long maxDurationSeconds;
+    private final long maxSizeBytes;
+
+    private Recording recording;
+    private Status status;
+
+    public FlightRecordingEndpoint(@Value("${profiling.default-duration-seconds:60}") long defaultDurationSeconds,
+                                   @Value("${profiling.max-duration-seconds:600}") long maxDurationSeconds,
+                                   @Value("${profiling.max-size-mb:100}") long maxSizeMb) {
+        this.defaultDurationSeconds = defaultDurationSeconds;
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * The state of the recording.
+     *
+     * @param state NEW, RUNNING, STOPPED or CLOSED
+     * @param profile the settings the recording was started with
+     * @param startTime when the recording started
+     * @param durationSeconds how long the recording runs before stopping on its own
+     * @param maxSizeBytes the size beyond which the oldest data is dropped
+     */
+    public record Status(String state, String profile, Instant startTime, long durationSeconds, long maxSizeBytes) {
+    }
+
+    @ReadOperation
+    public synchronized WebEndpointResponse<Status> status() {
+        if (recording == null) return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        return new WebEndpointResponse<>(current());
+    }
+
+    /**
+     * Starts a recording, unless one is already running or waiting to be collected.
+     *
+     * @param profile the JFR settings, {@code default} for continuous use or {@code profile} for more detail
+     * @param durationSeconds how long to record, capped at {@code profiling.max-duration-seconds}
+     * @return the state of the new recording, or 409 if a recording already exists
+     */
+    @WriteOperation
+    public synchronized WebEndpointResponse<Status> start(@Nullable String profile, @Nullable Long durationSeconds) {
+        if (recording != null) return new WebEndpointResponse<>(current(), HttpStatus.CONFLICT.value());
+
+        String settings = profile == null ? "default" : profile;
+        if (!PROFILES.contains(settings)) {
+            throw new InvalidEndpointRequestException("Unknown profile " + settings, "Unknown profile");
+        }
+        long duration = Math.clamp(durationSeconds == null ? defaultDurationSeconds : durationSeconds, 1, maxDurationSeconds);
+
+        Recording started;
+        try {
+            started = new Recording(Configuration.getConfiguration(settings));
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Cannot read the JFR settings " + settings, e);
+        }
+        EXCLUDED_EVENTS.forEach(started::disable);
+        started.setName("users-on-demand");
+        started.setToDisk(true);
+        started.setMaxSize(maxSizeBytes);
+        started.setDuration(Duration.ofSeconds(duration));
+        started.start();
+        recording = started;
+        status = new Status(RecordingState.RUNNING.name(), settings, started.getStartTime(), duration, maxSizeBytes);
+        return new WebEndpointResponse<>(status);
+    }
+
+    /**
+     * Stops the recording and streams it as a {@code .jfr} file.
+     *
+     * @return the recording, or 404 if none was started
+     */
+    @DeleteOperation
+    public synchronized WebEndpointResponse<Resource> stop() {
+        if (recording == null) return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+
+        Recording stopped = recording;
+        recording = null;
+        status = null;
+        try {
+            if (stopped.getState() == RecordingState.RUNNING) stopped.stop();
+            Path file = Files.createTempFile("users-", ".jfr");
+            try {
+                stopped.dump(file);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return new WebEndpointResponse<>(new TemporaryFileResource(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            stopped.close();
+        }
+    }
+
+    private Status current() {
+        return new Status(recording.getState().name(), status.profile(), status.startTime(),
+                status.durationSeconds(), status.maxSizeBytes());
+    }
+
+    /**
+     * A file deleted once it has been read, the way the heap dump endpoint streams its dumps.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        private TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException {
+            ReadableByteChannel channel = super.readableChannel();
+            return new ReadableByteChannel() {
+                @Override
+                public int read(ByteBuffer buffer) throws IOException {
+                    return channel.read(buffer);
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return channel.isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        channel.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.nisum.users.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.exceptions.ErrorBodies;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Rejects unauthenticated requests with a 403 response and a body rendered once at startup. The
+ * default entry point calls {@code sendError}, which dispatches the request again to the error page
+ * through the whole filter chain.
+ */
+@Component
+public class ForbiddenEntryPoint implements AuthenticationEntryPoint {
+
+    private final byte[] body;
+
+    public ForbiddenEntryPoint(ObjectMapper objectMapper) {
+        this.body = ErrorBodies.render(objectMapper, "Forbidden", "Access denied");
+    }
+
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response,
+                         AuthenticationException authException) throws IOException {
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -1,10 +1,15 @@
 package com.nisum.users.config;
 
 import com.nisum.users.entities.User;
-import com.nisum.users.repositories.UserRepository;
+import com.nisum.users.repositories.ShardedUserRepository;
 import com.nisum.users.utils.JwtTokenUtil;
+import com.nisum.users.utils.ProfilingEvents;
+import com.nisum.users.utils.ReplicaRouter;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,20 +22,29 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Optional;
+import java.util.Set;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenUtil jwtTokenUtil;
-    private final UserRepository userRepository;
+    private final ShardedUserRepository shardedUserRepository;
+    private final ObservationRegistry observationRegistry;
 
+    @Value("${security.admin-emails:}")
+    private Set<String> adminEmails;
 
     private static final String BEARER_PREFIX = "Bearer ";
+    private static final String AUTHENTICATED = "AUTHENTICATED";
+    private static final String INVALID_TOKEN = "INVALID_TOKEN";
+    private static final String UNKNOWN_USER = "UNKNOWN_USER";
+    private static final String STALE_TOKEN = "STALE_TOKEN";
 
     /**
      * Filters incoming HTTP requests, checking for a Bearer token in the Authorization header.
-     * If a valid Bearer token is found, the token is authenticated.
+     * If a valid Bearer token is found, the token is authenticated, within an observation so the token
+     * validation and user lookup show up as their own span in the traces.
      *
      * @param request the HttpServletRequest object, providing request information for HTTP servlets
      * @param response the HttpServletResponse object, assisting a servlet in sending a response to the client
@@ -44,7 +58,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String authorizationHeader = request.getHeader("Authorization");
 
         if (authorizationHeader != null && authorizationHeader.startsWith(BEARER_PREFIX)) {
-            authenticateToken(authorizationHeader.substring(BEARER_PREFIX.length()));
+            String token = authorizationHeader.substring(BEARER_PREFIX.length());
+            Observation.createNotStarted("jwt.authentication", observationRegistry)
+                    .observe(() -> authenticateToken(token));
         }
 
         filterChain.doFilter(request, response);
@@ -53,27 +69,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     /**
      * Authenticates a JWT token by validating its signature and verifying the token's
      * association with a user in the system. If valid, sets the Spring Security context
-     * with the authenticated user's details.
+     * with the authenticated user's details, holding the user's id as the authentication details and
+     * granting the ADMIN authority to the users listed in {@code security.admin-emails}. The user is always read from the primary, since a lagging replica
+     * would reject a token just issued, or accept one just replaced. The outcome is recorded as a
+     * {@link ProfilingEvents.JwtVerification} event for flight recordings.
      *
      * @param token the JWT token to be authenticated
      */
     private void authenticateToken(String token) {
-        if (jwtTokenUtil.validateToken(token)) {
-            String email = jwtTokenUtil.getEmailFromToken(token);
-            Optional<User> foundUser = userRepository.findByEmail(email);
+        ProfilingEvents.JwtVerification event = new ProfilingEvents.JwtVerification();
+        event.begin();
+        String email = jwtTokenUtil.parseEmail(token);
+        event.email = email;
+        event.outcome = INVALID_TOKEN;
+        if (email != null) {
+            Optional<User> foundUser = ReplicaRouter.onPrimary(() -> shardedUserRepository.findByEmail(email));
+            event.outcome = foundUser.isEmpty() ? UNKNOWN_USER : STALE_TOKEN;
 
             if (foundUser.isPresent() && token.equals(foundUser.get().getToken())) {
                 UserDetails userDetails = org.springframework.security.core.userdetails.User
                         .withUsername(email)
                         .password("")
-                        .authorities("USER")
+                        .authorities(adminEmails.contains(email) ? new String[]{"USER", "ADMIN"} : new String[]{"USER"})
                         .build();
 
-                SecurityContextHolder.getContext().setAuthentication(
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities())
-                );
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                authentication.setDetails(foundUser.get().getId());
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                event.outcome = AUTHENTICATED;
             }
         }
+        event.commit();
     }
 }
 
@@ -0,0 +1,49 @@
+package com.nisum.users.config;
+
+import com.nisum.users.utils.ProfilingEvents;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Password encoder reporting every hash and comparison as an observation, so the time spent in
+ * BCrypt shows up as its own span in the traces, and as a {@link ProfilingEvents.PasswordHash} event
+ * with the work factor of the hash for flight recordings.
+ */
+@RequiredArgsConstructor
+public class ObservedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ObservationRegistry observationRegistry;
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        ProfilingEvents.PasswordHash event = new ProfilingEvents.PasswordHash();
+        event.begin();
+        String encoded = Observation.createNotStarted("password.encode", observationRegistry)
+                .observe(() -> delegate.encode(rawPassword));
+        event.operation = "encode";
+        event.strength = ProfilingEvents.strength(encoded);
+        event.commit();
+        return encoded;
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        ProfilingEvents.PasswordHash event = new ProfilingEvents.PasswordHash();
+        event.begin();
+        Boolean matches = Observation.createNotStarted("password.matches", observationRegistry)
+                .observe(() -> delegate.matches(rawPassword, encodedPassword));
+        event.operation = "matches";
+        event.strength = ProfilingEvents.strength(encodedPassword);
+        event.matched = Boolean.TRUE.equals(matches);
+        event.commit();
+        return Boolean.TRUE.equals(matches);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,123 @@
+package com.nisum.users.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes read-only transactions to a pool of read replicas and everything else to the primary
+ * configured by {@code spring.datasource}. Replicas share the credentials of the primary. Replica
+ * routing is not combined with sharding.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("${replicas.enabled:false} and !${sharding.enabled:false}")
+public class ReplicaConfig {
+
+    /**
+     * Creates a pool per replica URL. Startup fails when no URL is configured, since replica routing
+     * would then have nowhere to send the reads.
+     *
+     * @param properties the data source properties
+     * @param urls the JDBC URL of every replica
+     * @param meterRegistry the registry receiving the replica metrics
+     * @param validationTimeoutSeconds the timeout of the health check of a replica
+     * @return the replica pool
+     */
+    @Bean
+    public ReplicaPool replicaPool(DataSourceProperties properties,
+                                   @Value("${replicas.urls:}") List<String> urls,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${replicas.validation-timeout-seconds:1}") int validationTimeoutSeconds) {
+        urls = urls.stream().filter(url -> !url.isBlank()).toList();
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("replicas.enabled is set but replicas.urls lists no replica");
+        }
+        List<DataSource> replicas = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(i))
+                    .build();
+            dataSource.setPoolName("replica-" + i);
+            replicas.add(dataSource);
+        }
+        return new ReplicaPool(replicas, meterRegistry, validationTimeoutSeconds);
+    }
+
+    /**
+     * Creates the routing data source. It is a bean of its own so the JDBC observation proxy wraps it
+     * rather than the lazy proxy in front of it: the observation reads the metadata of every connection
+     * it hands out, which would make the lazy proxy acquire its connection before the transaction is
+     * marked read-only.
+     *
+     * @param properties the data source properties of the primary
+     * @param replicaPool the replica pool
+     * @return the routing data source
+     */
+    @Bean
+    public DataSource replicaRoutingDataSource(DataSourceProperties properties, ReplicaPool replicaPool) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return new ReplicaRoutingDataSource(primary, replicaPool);
+    }
+
+    /**
+     * Wraps the routing data source in a lazy proxy so a transaction only acquires its connection on
+     * the first statement, once it is marked read-only. The proxy is excluded from the JDBC observation
+     * by {@code jdbc.excluded-data-source-bean-names}.
+     *
+     * @param replicaRoutingDataSource the routing data source
+     * @return the data source used by the application
+     */
+    @Bean
+    @Primary
+    public DataSource replicaDataSource(@Qualifier("replicaRoutingDataSource") DataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Exports the mapped tables to the replicas when {@code replicas.export-schema} is set, for local
+     * databases standing in for replicas that are not fed by replication.
+     *
+     * @param entityManagerFactory the entity manager factory
+     * @param replicaPool the replica pool
+     * @param exportSchema whether the schema is exported to the replicas
+     * @return the initializer, run once every singleton is created
+     */
+    @Bean
+    public SmartInitializingSingleton replicaSchemaInitializer(EntityManagerFactory entityManagerFactory,
+                                                               ReplicaPool replicaPool,
+                                                               @Value("${replicas.export-schema:false}") boolean exportSchema) {
+        return () -> {
+            if (!exportSchema) return;
+
+            SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+            for (ReplicaPool.Replica replica : replicaPool.replicas()) {
+                try {
+                    ReplicaRoutingDataSource.callOn(replica.getDataSource(), () -> {
+                        sessionFactory.getSchemaManager().exportMappedObjects(true);
+                        return null;
+                    });
+                } catch (RuntimeException e) {
+                    log.warn("Schema export to {} failed: {}", replica.getName(), e.getMessage());
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package com.nisum.users.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The read replicas, handed out in round-robin order. A replica that fails to provide a connection,
+ * or its health check, is ejected until a later health check succeeds. Every replica publishes the
+ * {@code db.replica.healthy} gauge, the {@code db.replica.ping} latency of its health checks and the
+ * {@code db.replica.usage} time its connections are held by read-only transactions.
+ */
+@Slf4j
+public class ReplicaPool implements AutoCloseable {
+
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final int validationTimeoutSeconds;
+
+    public ReplicaPool(List<DataSource> dataSources, MeterRegistry meterRegistry, int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.replicas = new ArrayList<>(dataSources.size());
+        for (int i = 0; i < dataSources.size(); i++) {
+            replicas.add(new Replica("replica-" + i, dataSources.get(i), meterRegistry));
+        }
+    }
+
+    /**
+     * Selects the next healthy replica in round-robin order.
+     *
+     * @return the selected replica, or null if every replica is ejected or there is none
+     */
+    public Replica select() {
+        if (replicas.isEmpty()) return null;
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) return replica;
+        }
+        return null;
+    }
+
+    public List<Replica> replicas() {
+        return replicas;
+    }
+
+    /**
+     * Validates a connection of every replica, ejecting the failing ones and readmitting the
+     * recovered ones.
+     */
+    @Scheduled(fixedDelayString = "${replicas.health-check-interval-ms:5000}")
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            long start = System.nanoTime();
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(validationTimeoutSeconds)) {
+                    replica.eject("connection is not valid");
+                    continue;
+                }
+                replica.ping.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                replica.readmit();
+            } catch (SQLException e) {
+                replica.eject(e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) closeable.close();
+        }
+    }
+
+    public static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final Timer usage;
+        private final Timer ping;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.usage = Timer.builder("db.replica.usage").tag("replica", name).register(meterRegistry);
+            this.ping = Timer.builder("db.replica.ping").tag("replica", name).register(meterRegistry);
+            Gauge.builder("db.replica.healthy", this, replica -> replica.healthy ? 1 : 0)
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        public Timer getUsage() {
+            return usage;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        void eject(String reason) {
+            if (healthy) log.warn("Ejecting {}: {}", name, reason);
+            healthy = false;
+        }
+
+        void readmit() {
+            if (!healthy) log.info("Readmitting {}", name);
+            healthy = true;
+        }
+    }
+}
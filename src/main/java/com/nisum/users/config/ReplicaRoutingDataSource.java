@@ -0,0 +1,96 @@
+package com.nisum.users.config;
+
+import com.nisum.users.utils.ReplicaRouter;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Hands out connections from a replica to read-only transactions that are not pinned to the primary,
+ * and from the primary to everything else. It must be wrapped in a lazy connection proxy, so the
+ * connection is acquired on the first statement, once the transaction is marked read-only. A replica
+ * that fails to provide a connection is ejected and the read falls back to the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final ThreadLocal<DataSource> FORCED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final ReplicaPool replicaPool;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaPool replicaPool) {
+        this.primary = primary;
+        this.replicaPool = replicaPool;
+    }
+
+    /**
+     * Runs an action with every connection of the current thread taken from the given data source,
+     * such as a replica receiving the generated schema.
+     *
+     * @param dataSource the data source to use
+     * @param action the action to run
+     * @return the result of the action
+     */
+    public static <T> T callOn(DataSource dataSource, Supplier<T> action) {
+        FORCED.set(dataSource);
+        try {
+            return action.get();
+        } finally {
+            FORCED.remove();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource forced = FORCED.get();
+        if (forced != null) return forced.getConnection();
+
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !ReplicaRouter.isPinnedToPrimary()) {
+            ReplicaPool.Replica replica = replicaPool.select();
+            if (replica != null) {
+                try {
+                    return timed(replica.getDataSource().getConnection(), replica);
+                } catch (SQLException e) {
+                    replica.eject(e.getMessage());
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Hands out a connection opened with explicit credentials, which only the primary is known to accept,
+     * unless the current thread is bound to another data source.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        DataSource forced = FORCED.get();
+        return (forced != null ? forced : primary).getConnection(username, password);
+    }
+
+    /**
+     * Wraps a replica connection so the time it is held, from acquisition to close, is recorded in the
+     * usage timer of the replica.
+     */
+    private static Connection timed(Connection connection, ReplicaPool.Replica replica) {
+        long start = System.nanoTime();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && !connection.isClosed()) {
+                        replica.getUsage().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
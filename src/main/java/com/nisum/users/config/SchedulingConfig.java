@@ -0,0 +1,16 @@
+package com.nisum.users.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the scheduled tasks, such as the relays, pollers and cleanups. Setting
+ * {@code scheduling.enabled=false} turns them all off, for tests that must only see the work of the
+ * requests they send.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
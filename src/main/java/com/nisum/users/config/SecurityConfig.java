@@ -1,5 +1,8 @@
 package com.nisum.users.config;
 
+import com.nisum.users.utils.PasswordHashCalibrator;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,21 +13,32 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.util.Map;
+
 @Configuration
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    private static final String BCRYPT_ID = "bcrypt";
+
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final ForbiddenEntryPoint forbiddenEntryPoint;
 
     /**
      * Configures the Spring Security filter chain for the application. This configuration includes:
-     * - Permitting access to specific public endpoints such as login, sign-up, Swagger documentation, H2 console, and actuator endpoints.
+     * - Permitting access to specific public endpoints such as login, sign-up, Swagger documentation, H2 console, and actuator endpoints,
+     *   except the traces and flight recording endpoints, which require the ADMIN authority.
+     * - Permitting async and error dispatches, which only continue a request already authorized, such as a
+     *   streamed export finishing after the response is committed.
      * - Requiring authentication for all other endpoints.
      * - Disabling Cross-Site Request Forgery (CSRF) protection.
      * - Configuring headers to allow frames from the same origin (useful for H2 console).
      * - Adding a custom JWT authentication filter for processing JWT tokens before the standard authentication filter.
+     * - Rejecting unauthenticated requests with a precomputed 403 body instead of an error page dispatch.
      *
      * @param http the HttpSecurity object used to configure security settings for HTTP requests
      * @return a configured {@code SecurityFilterChain} instance
@@ -34,27 +48,40 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         return http
                 .authorizeHttpRequests(auth -> auth
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/v1/users/login").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/v1/users").permitAll()
                         .requestMatchers("/swagger-ui/**").permitAll()
                         .requestMatchers("/v3/api-docs/**").permitAll()
                         .requestMatchers("/h2-console/**").permitAll()
+                        .requestMatchers("/actuator/traces").hasAuthority("ADMIN")
+                        .requestMatchers("/actuator/jfr").hasAuthority("ADMIN")
                         .requestMatchers("/actuator/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .csrf(AbstractHttpConfigurer::disable)
                 .headers(headers -> headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin))
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(forbiddenEntryPoint))
                 .addFilterBefore(jwtAuthenticationFilter, org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
 
     /**
-     * Provides a BCryptPasswordEncoder bean to be used for password encoding in the application.
+     * Provides the password encoder used by the application. New hashes are produced by BCrypt with a
+     * strength calibrated on startup for this host and are prefixed with {@code {bcrypt}}. Hashes stored
+     * without a prefix are still matched with BCrypt, and {@link PasswordEncoder#upgradeEncoding(String)}
+     * reports both those and hashes with a lower strength as outdated so they can be rehashed on login.
+     * Hashes and comparisons are reported as observations.
      *
-     * @return an instance of BCryptPasswordEncoder
+     * @param passwordHashCalibrator the calibrator that chooses the BCrypt strength
+     * @param observationRegistry the registry receiving the observations
+     * @return a DelegatingPasswordEncoder backed by a calibrated BCryptPasswordEncoder
      */
     @Bean
-    BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    PasswordEncoder passwordEncoder(PasswordHashCalibrator passwordHashCalibrator, ObservationRegistry observationRegistry) {
+        BCryptPasswordEncoder bCryptPasswordEncoder = new BCryptPasswordEncoder(passwordHashCalibrator.calibrate());
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(BCRYPT_ID, Map.of(BCRYPT_ID, bCryptPasswordEncoder));
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bCryptPasswordEncoder);
+        return new ObservedPasswordEncoder(passwordEncoder, observationRegistry);
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.nisum.users.config;
+
+import com.nisum.users.utils.ShardRouter;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections from the shard the current thread is routed to by the ShardRouter, or from
+ * the first shard when the thread is not routed.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.currentShard();
+    }
+}
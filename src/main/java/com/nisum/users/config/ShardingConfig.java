@@ -0,0 +1,125 @@
+package com.nisum.users.config;
+
+import com.nisum.users.utils.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces the single data source with one pool per shard behind a routing data source. Every shard
+ * holds the full schema; users and their phones live on the shard selected by the ShardRouter, while
+ * the first shard also holds the data shared by all nodes, such as the relayed change feed.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    private static final Set<String> SCHEMA_GENERATING_MODES = Set.of("create", "create-drop", "update");
+
+    /**
+     * Creates a pool per shard URL, sharing the credentials of {@code spring.datasource}, behind a routing
+     * data source.
+     *
+     * @param properties the data source properties
+     * @param urls the JDBC URL of every shard, in shard order
+     * @return the routing data source
+     */
+    @Bean
+    public DataSource shardRoutingDataSource(DataSourceProperties properties, @Value("${sharding.urls}") List<String> urls) {
+        Map<Object, Object> shards = new HashMap<>();
+        for (int shard = 0; shard < urls.size(); shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(shard))
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+            shards.put(shard, dataSource);
+        }
+
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+        routingDataSource.setTargetDataSources(shards);
+        routingDataSource.setDefaultTargetDataSource(shards.get(0));
+        routingDataSource.afterPropertiesSet();
+        return routingDataSource;
+    }
+
+    /**
+     * Wraps the routing data source in a lazy proxy, so a transaction only acquires its connection on
+     * the first statement, once the shard has been bound. Both data sources are excluded from the JDBC
+     * observation by {@code jdbc.excluded-data-source-bean-names}: wrapping the lazy proxy reads the
+     * connection metadata, which acquires the connection from the default shard before the shard is bound,
+     * and wrapping the routing data source opens connection scopes that outlive the repository observation
+     * they were opened in, so sharded nodes trace requests without their SQL spans.
+     *
+     * @param shardRoutingDataSource the routing data source
+     * @return the data source used by the application
+     */
+    @Bean
+    @Primary
+    public DataSource shardedDataSource(@Qualifier("shardRoutingDataSource") DataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * Applies the schema migrations to every shard, one after the other, when Flyway is enabled.
+     *
+     * @param urls the JDBC URL of every shard
+     * @return the migration strategy
+     */
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy(@Value("${sharding.urls}") List<String> urls) {
+        return flyway -> {
+            for (int shard = 0; shard < urls.size(); shard++) {
+                ShardRouter.callOnShard(shard, flyway::migrate);
+            }
+        };
+    }
+
+    /**
+     * Hibernate only generates the schema on the first shard; when schema generation is enabled the
+     * mapped tables are also exported to the other shards.
+     *
+     * @param entityManagerFactory the entity manager factory
+     * @param shardRouter the shard router
+     * @param ddlAuto the schema generation mode
+     * @return the initializer, run once every singleton is created
+     */
+    @Bean
+    public SmartInitializingSingleton shardSchemaInitializer(EntityManagerFactory entityManagerFactory,
+                                                             ShardRouter shardRouter,
+                                                             @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+        return () -> {
+            if (!SCHEMA_GENERATING_MODES.contains(ddlAuto)) return;
+
+            SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+            for (int shard = 1; shard < shardRouter.shardCount(); shard++) {
+                try {
+                    ShardRouter.callOnShard(shard, () -> {
+                        sessionFactory.getSchemaManager().exportMappedObjects(true);
+                        return null;
+                    });
+                } catch (RuntimeException e) {
+                    log.warn("Schema export to shard {} failed: {}", shard, e.getMessage());
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package com.nisum.users.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Span exporter that keeps whole traces in memory, and optionally in a JSON lines file, without an
+ * external collector. Every span is recorded and the decision is taken once the local root span of a
+ * trace ends: the trace is kept when the root took at least {@code tracing.slow-threshold-ms} or any
+ * span failed, and dropped otherwise. Spans ending after their root, such as those of asynchronous
+ * work, follow the decision taken for their trace; those of a kept trace are appended to it, and
+ * written to the file as a further line with the same trace id.
+ */
+@Slf4j
+public class TailSamplingSpanExporter implements SpanExporter {
+
+    private static final int MAX_PENDING_TRACES = 10_000;
+    private static final int MAX_DECISIONS = 10_000;
+
+    private final long slowThresholdNanos;
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Map<String, List<Span>> pending = boundedMap(MAX_PENDING_TRACES);
+    private final Map<String, Boolean> decisions = boundedMap(MAX_DECISIONS);
+    private final Map<String, Trace> kept;
+
+    public TailSamplingSpanExporter(long slowThresholdMs, int maxTraces, Path file, ObjectMapper objectMapper) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.kept = boundedMap(maxTraces);
+    }
+
+    /**
+     * A kept trace.
+     *
+     * @param traceId the trace id
+     * @param name the name of the local root span
+     * @param durationMs the duration of the local root span
+     * @param spans the spans of the trace, in the order they ended
+     */
+    public record Trace(String traceId, String name, double durationMs, List<Span> spans) {
+    }
+
+    /**
+     * A span of a kept trace.
+     *
+     * @param spanId the span id
+     * @param parentSpanId the id of the parent span, or null for a root span
+     * @param name the span name
+     * @param startEpochMicros the start time, in microseconds since the epoch
+     * @param durationMicros the duration, in microseconds
+     * @param error whether the span failed
+     * @param attributes the span attributes
+     */
+    public record Span(String spanId, String parentSpanId, String name, long startEpochMicros, long durationMicros,
+                       boolean error, Map<String, String> attributes) {
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        for (SpanData spanData : spans) {
+            String traceId = spanData.getTraceId();
+            Span span = toSpan(spanData);
+            Boolean decision = decisions.get(traceId);
+            if (decision != null) {
+                if (decision) keepLate(traceId, span);
+                continue;
+            }
+
+            List<Span> trace = pending.computeIfAbsent(traceId, id -> new ArrayList<>());
+            trace.add(span);
+            if (isLocalRoot(spanData)) decide(traceId, spanData, pending.remove(traceId));
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * Returns the kept traces, most recent first.
+     *
+     * @return the kept traces
+     */
+    public synchronized List<Trace> traces() {
+        List<Trace> traces = new ArrayList<>(kept.size());
+        for (Trace trace : kept.values()) {
+            traces.addFirst(new Trace(trace.traceId(), trace.name(), trace.durationMs(), List.copyOf(trace.spans())));
+        }
+        return traces;
+    }
+
+    private void decide(String traceId, SpanData root, List<Span> spans) {
+        long duration = root.getEndEpochNanos() - root.getStartEpochNanos();
+        boolean keep = duration >= slowThresholdNanos || spans.stream().anyMatch(Span::error);
+        decisions.put(traceId, keep);
+        if (!keep) return;
+
+        Trace trace = new Trace(traceId, root.getName(), duration / 1e6, spans);
+        kept.put(traceId, trace);
+        write(trace);
+    }
+
+    private void keepLate(String traceId, Span span) {
+        Trace trace = kept.get(traceId);
+        if (trace != null) trace.spans().add(span);
+        write(new Trace(traceId, null, 0, List.of(span)));
+    }
+
+    private void write(Trace trace) {
+        if (file == null) return;
+
+        try (Writer writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(objectMapper.writeValueAsString(trace));
+            writer.write('\n');
+        } catch (IOException e) {
+            log.warn("Could not write trace {} to {}", trace.traceId(), file, e);
+        }
+    }
+
+    private static boolean isLocalRoot(SpanData span) {
+        SpanContext parent = span.getParentSpanContext();
+        return !parent.isValid() || parent.isRemote();
+    }
+
+    private static Span toSpan(SpanData span) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        return new Span(
+                span.getSpanId(),
+                span.getParentSpanContext().isValid() ? span.getParentSpanId() : null,
+                span.getName(),
+                TimeUnit.NANOSECONDS.toMicros(span.getStartEpochNanos()),
+                TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()),
+                span.getStatus().getStatusCode() == StatusCode.ERROR,
+                attributes);
+    }
+
+    private static <V> Map<String, V> boundedMap(int capacity) {
+        return new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+}
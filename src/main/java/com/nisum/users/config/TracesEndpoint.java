@@ -0,0 +1,24 @@
+package com.nisum.users.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint listing the traces kept by the tail sampler, most recent first.
+ */
+@Component
+@Endpoint(id = "traces")
+@RequiredArgsConstructor
+public class TracesEndpoint {
+
+    private final TailSamplingSpanExporter tailSamplingSpanExporter;
+
+    @ReadOperation
+    public List<TailSamplingSpanExporter.Trace> traces() {
+        return tailSamplingSpanExporter.traces();
+    }
+}
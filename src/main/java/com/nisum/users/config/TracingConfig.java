@@ -0,0 +1,93 @@
+package com.nisum.users.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.utils.ProfilingEvents;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * Tracing setup. Requests, the security filter chain and scheduled tasks are observed by Spring Boot,
+ * SQL statements and connection acquisition by the datasource observation starter, and the controller,
+ * service and sharded repository by {@code @Observed}. This configuration adds an observation around
+ * every Spring Data repository method, propagates the observation context to the tasks of the
+ * auto-configured executors, such as streamed responses, and exports the spans through a
+ * {@link TailSamplingSpanExporter}. The shard and export worker pools propagate it themselves.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    TailSamplingSpanExporter tailSamplingSpanExporter(ObjectMapper objectMapper,
+                                                      @Value("${tracing.slow-threshold-ms:500}") long slowThresholdMs,
+                                                      @Value("${tracing.max-traces:200}") int maxTraces,
+                                                      @Value("${tracing.file:}") String file) {
+        return new TailSamplingSpanExporter(slowThresholdMs, maxTraces, file.isEmpty() ? null : Path.of(file), objectMapper);
+    }
+
+    @Bean
+    ContextPropagatingTaskDecorator contextPropagatingTaskDecorator() {
+        return new ContextPropagatingTaskDecorator();
+    }
+
+    /**
+     * Adds an observation around the methods of every Spring Data repository, the same way Spring Boot
+     * registers its repository metrics. Returned streams are observed up to their creation only; the
+     * statements reading them are observed as SQL spans. Calls slower than the threshold of the
+     * {@link ProfilingEvents.SlowRepositoryCall} event are also recorded for flight recordings.
+     *
+     * @param observationRegistry the registry receiving the observations, resolved on first use
+     * @return the post processor customizing the repository factories
+     */
+    @Bean
+    static BeanPostProcessor repositoryObservationPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        Supplier<ObservationRegistry> registry = SingletonSupplier.of(() -> observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+                                    new RepositoryObservationInterceptor(registry, repositoryInformation.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private record RepositoryObservationInterceptor(Supplier<ObservationRegistry> registry, Class<?> repository)
+            implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            String method = invocation.getMethod().getName();
+            ProfilingEvents.SlowRepositoryCall event = new ProfilingEvents.SlowRepositoryCall();
+            event.begin();
+            Object result = Observation.createNotStarted("users.repository", registry.get())
+                    .contextualName(repository.getSimpleName() + "#" + method)
+                    .lowCardinalityKeyValue("repository", repository.getSimpleName())
+                    .lowCardinalityKeyValue("method", method)
+                    .observeChecked(invocation::proceed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = repository.getSimpleName();
+                event.method = method;
+                event.rows = ProfilingEvents.rows(result);
+                event.commit();
+            }
+            return result;
+        }
+    }
+}
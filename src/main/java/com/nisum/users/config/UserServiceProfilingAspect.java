@@ -0,0 +1,60 @@
+package com.nisum.users.config;
+
+import com.nisum.users.entities.User;
+import com.nisum.users.utils.ProfilingEvents;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.Hibernate;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Records every UserService operation as a {@link ProfilingEvents.UserServiceCall} event, with the user
+ * it returned, or the id it was given, and the rows it returned. The aspect runs outside the
+ * transaction, so the event spans the commit too.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class UserServiceProfilingAspect {
+
+    private static final String OK = "OK";
+
+    @Around("execution(* com.nisum.users.service.UserService.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        ProfilingEvents.UserServiceCall event = new ProfilingEvents.UserServiceCall();
+        event.begin();
+        try {
+            Object result = joinPoint.proceed();
+            event.outcome = OK;
+            describe(event, result);
+            return result;
+        } catch (Throwable e) {
+            event.outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = joinPoint.getSignature().getName();
+                if (event.userId == null && joinPoint.getArgs().length > 0 && joinPoint.getArgs()[0] instanceof UUID id) {
+                    event.userId = id.toString();
+                }
+                event.commit();
+            }
+        }
+    }
+
+    private static void describe(ProfilingEvents.UserServiceCall event, Object result) {
+        if (result instanceof User user) {
+            event.userId = String.valueOf(user.getId());
+            event.rows = 1 + (Hibernate.isInitialized(user.getPhones()) && user.getPhones() != null ? user.getPhones().size() : 0);
+        } else if (result instanceof Collection<?> users) {
+            event.rows = users.size();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.nisum.users.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.entities.OutboxEvent;
+import com.nisum.users.service.UserChangeFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("api/v1/users/changes")
+public class UserChangeController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final UserChangeFeedService userChangeFeedService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Retrieves a batch of user changes following the given offset as newline-delimited JSON. Consumers
+     * resume by passing the id of the last change they processed.
+     *
+     * @param after the offset of the last change already consumed
+     * @param limit the maximum number of changes to return
+     * @return a ResponseEntity streaming one JSON change per line
+     */
+    @Operation(summary = "Get user changes", description = "Retrieves the user changes after the given offset as NDJSON")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved the changes")
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getChanges(@RequestParam(defaultValue = "0") Long after,
+                                                            @RequestParam(defaultValue = "500") int limit) {
+        List<OutboxEvent> changes = userChangeFeedService.getChanges(after, Math.min(Math.max(limit, 1), 1000));
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(outputStream -> {
+                    for (OutboxEvent change : changes) {
+                        outputStream.write(objectMapper.writeValueAsBytes(change));
+                        outputStream.write('\n');
+                    }
+                });
+    }
+
+    /**
+     * Streams user changes as Server-Sent Events. A reconnecting client resumes from the
+     * {@code Last-Event-ID} header, or from the {@code after} parameter on the first connection.
+     *
+     * @param lastEventId the id of the last event received before reconnecting
+     * @param after the offset to start from when no event was received yet
+     * @return the emitter streaming the changes
+     */
+    @Operation(summary = "Stream user changes", description = "Streams the user changes as Server-Sent Events, resumable through Last-Event-ID")
+    @ApiResponse(responseCode = "200", description = "Change stream opened")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                    @RequestParam(required = false) Long after) {
+        return userChangeFeedService.subscribe(lastEventId != null ? lastEventId : after);
+    }
+}
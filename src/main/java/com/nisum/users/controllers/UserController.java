@@ -1,18 +1,42 @@
 package com.nisum.users.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.dto.ExportFormat;
 import com.nisum.users.dto.UserCreateDTO;
 import com.nisum.users.dto.UserCreatedDTO;
 import com.nisum.users.dto.UserLoginDTO;
+import com.nisum.users.dto.UserUpdateDTO;
 import com.nisum.users.entities.User;
+import com.nisum.users.exceptions.ForbiddenException;
+import com.nisum.users.service.IdempotencyStore;
+import com.nisum.users.service.UserExportService;
 import com.nisum.users.service.UserService;
+import io.micrometer.observation.annotation.Observed;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.UUID;
 import io.swagger.v3.oas.annotations.Operation;
@@ -20,21 +44,71 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 
 @RestController
 @RequiredArgsConstructor
+@Observed(name = "users.controller")
 @RequestMapping("api/v1/users")
 public class UserController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+    private static final GrantedAuthority ADMIN = new SimpleGrantedAuthority("ADMIN");
+    private static final ForbiddenException FORBIDDEN = new ForbiddenException();
+
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    @Value("${idempotency.fingerprint-secret:}")
+    private String fingerprintSecret;
+
+    private SecretKeySpec fingerprintKey;
+
+    /**
+     * Keys the idempotency fingerprints with the configured secret, or with a random one when none is
+     * set, which only suits a single node.
+     */
+    @PostConstruct
+    void init() {
+        byte[] secret = new byte[32];
+        if (fingerprintSecret.isEmpty()) new SecureRandom().nextBytes(secret);
+        else secret = fingerprintSecret.getBytes(StandardCharsets.UTF_8);
+        fingerprintKey = new SecretKeySpec(secret, FINGERPRINT_ALGORITHM);
+    }
 
     /**
-     * Retrieves a list of all users.
+     * Retrieves a list of all users, or a page of users ordered by id when a limit is given.
      *
+     * @param after the id of the last user of the previous page
+     * @param limit the maximum number of users to return, between 1 and 1000
      * @return a ResponseEntity containing a list of User objects.
      */
-    @Operation(summary = "Get all users", description = "Retrieves a list of all available users")
+    @Operation(summary = "Get all users", description = "Retrieves a list of all available users, or a page of users ordered by id when a limit is given")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved the list of users")
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        return ResponseEntity.ok(userService.getUsers());
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) UUID after,
+                                                  @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(limit == null
+                ? userService.getUsers()
+                : userService.getUsers(after, Math.min(Math.max(limit, 1), 1000)));
+    }
+
+    /**
+     * Streams a gzip-compressed dump of all users and their phones without loading them into memory.
+     *
+     * @param format the row format of the dump, CSV or NDJSON
+     * @param partitions the number of id ranges exported in parallel, at least 1
+     * @return a ResponseEntity streaming the compressed dump as an attachment
+     */
+    @Operation(summary = "Export all users", description = "Streams a gzip-compressed CSV or NDJSON dump of all users and their phones")
+    @ApiResponse(responseCode = "200", description = "Export successfully streamed")
+    @ApiResponse(responseCode = "400", description = "Invalid number of partitions")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "CSV") ExportFormat format,
+                                                             @RequestParam(defaultValue = "1") @Min(1) int partitions) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + format.getExtension() + "\"")
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .body(outputStream -> userExportService.export(format, partitions, outputStream));
     }
 
     /**
@@ -54,26 +128,30 @@ public class UserController {
     }
 
     /**
-     * Creates a new user and returns the created user details.
+     * Creates a new user and returns the created user details. When an {@code Idempotency-Key} header
+     * is sent, a retry with the same key and body returns the details of the user created by the first
+     * request instead of creating it again, waiting for it if it is still running.
      *
+     * @param idempotencyKey the optional key identifying retries of the same request
      * @param userCreateDTO the data transfer object containing user creation details
      * @return a ResponseEntity containing the created user's details encapsulated in a UserCreatedDTO
      * @throws 400 Bad Request if the input data is invalid
+     * @throws 409 Conflict if the email is taken or a request with the same key is still running
+     * @throws 422 Unprocessable Entity if the key is too long or was used with a different body
      */
     @Operation(summary = "Create a new user", description = "Creates a new user based on provided details and returns their information")
     @ApiResponse(responseCode = "201", description = "User successfully created")
     @ApiResponse(responseCode = "400", description = "Invalid user input data", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Bad Request\" , \"fieldErrors\": { \"field\": \"error\"}}")))
+    @ApiResponse(responseCode = "409", description = "Email already exists or a request with the same Idempotency-Key is still in progress", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Conflict\" , \n \"message\": \"Email already exists\"}")))
+    @ApiResponse(responseCode = "422", description = "Idempotency-Key too long or already used with a different request", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Unprocessable Entity\" , \n \"message\": \"Idempotency-Key was already used with a different request\"}")))
     @PostMapping
-    private ResponseEntity<UserCreatedDTO> createUser(@Valid @RequestBody UserCreateDTO userCreateDTO) {
-        User user = userService.createUser(userCreateDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(UserCreatedDTO.builder()
-                        .id(user.getId())
-                        .createdAt(user.getCreatedAt())
-                        .updatedAt(user.getUpdatedAt())
-                        .lastLogin(user.getLastLogin())
-                        .token(user.getToken())
-                        .isActive(user.isActive())
-                        .build());
+    public ResponseEntity<UserCreatedDTO> createUser(@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                     @Valid @RequestBody UserCreateDTO userCreateDTO) {
+        UserCreatedDTO userCreatedDTO = idempotencyKey == null
+                ? create(userCreateDTO)
+                : idempotencyStore.execute(idempotencyKey, fingerprint(userCreateDTO), UserCreatedDTO.class,
+                        () -> create(userCreateDTO));
+        return ResponseEntity.status(HttpStatus.CREATED).body(userCreatedDTO);
     }
     
     /**
@@ -88,9 +166,62 @@ public class UserController {
     @ApiResponse(responseCode = "200", description = "User successfully authenticated")
     @ApiResponse(responseCode = "404", description = "Not Found if the user with email and/or password not matches", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Not found\" , \n \"message\": \"Invalid email or password\"}")))
     @PostMapping("/login")
-    private ResponseEntity<User> loginUser(@Valid @RequestBody UserLoginDTO userLoginDTO) {
+    public ResponseEntity<User> loginUser(@Valid @RequestBody UserLoginDTO userLoginDTO) {
         return ResponseEntity.ok(userService.login(userLoginDTO));
     }
-    
-    
+
+    /**
+     * Partially updates an existing user. Only the supplied fields are changed and phones are added
+     * or removed individually. Users may only update themselves, unless they hold the ADMIN authority.
+     *
+     * @param id the unique identifier of the user to update
+     * @param userUpdateDTO the DTO containing the fields to change
+     * @param authentication the authenticated user, whose details hold its id
+     * @return a ResponseEntity containing the updated User
+     * @throws 400 Bad Request if the input data is invalid
+     * @throws 403 Forbidden if the user to update is another user and the caller is not an admin
+     * @throws 404 Not Found if the user with the specified ID does not exist
+     * @throws 409 Conflict if the email is taken or the user was modified concurrently
+     */
+    @Operation(summary = "Update a user", description = "Applies a partial update to an existing user, adding and removing phones individually")
+    @ApiResponse(responseCode = "200", description = "User successfully updated")
+    @ApiResponse(responseCode = "403", description = "The user belongs to someone else and the caller is not an admin", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Forbidden\" , \n \"message\": \"Access denied\"}")))
+    @ApiResponse(responseCode = "404", description = "User with the specified ID not found", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"User not found\"}")))
+    @ApiResponse(responseCode = "409", description = "Email already exists or the user was modified concurrently", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\": \"Conflict\" , \n \"message\": \"User was modified concurrently\"}")))
+    @PatchMapping("/{id}")
+    public ResponseEntity<User> updateUser(@PathVariable UUID id, @Valid @RequestBody UserUpdateDTO userUpdateDTO,
+                                           Authentication authentication) {
+        if (!id.equals(authentication.getDetails()) && !authentication.getAuthorities().contains(ADMIN))
+            throw FORBIDDEN;
+        return ResponseEntity.ok(userService.updateUser(id, userUpdateDTO));
+    }
+
+    private UserCreatedDTO create(UserCreateDTO userCreateDTO) {
+        User user = userService.createUser(userCreateDTO);
+        return UserCreatedDTO.builder()
+                .id(user.getId())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .lastLogin(user.getLastLogin())
+                .token(user.getToken())
+                .isActive(user.isActive())
+                .build();
+    }
+
+    /**
+     * Computes an HMAC-SHA256 fingerprint of the request body, password included, so a key reused with
+     * another body, or replayed with another password, is detected. The HMAC is keyed with a server
+     * secret, so the stored fingerprint cannot be used to guess the password.
+     */
+    private String fingerprint(UserCreateDTO userCreateDTO) {
+        try {
+            Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+            mac.init(fingerprintKey);
+            return HexFormat.of().formatHex(mac.doFinal(objectMapper.writeValueAsBytes(userCreateDTO)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
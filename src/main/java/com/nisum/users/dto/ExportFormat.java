@@ -0,0 +1,14 @@
+package com.nisum.users.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+
+    CSV("csv.gz"),
+    NDJSON("ndjson.gz");
+
+    private final String extension;
+}
@@ -0,0 +1,24 @@
+package com.nisum.users.dto;
+
+import com.nisum.users.entities.User;
+import lombok.Value;
+
+import java.util.UUID;
+
+@Value
+public class InvalidationMessage {
+
+    public static final String USER = "USER";
+
+    String entityType;
+    UUID id;
+    String email;
+
+    public static InvalidationMessage user(UUID id, String email) {
+        return new InvalidationMessage(USER, id, email);
+    }
+
+    public static InvalidationMessage user(User user) {
+        return user(user.getId(), user.getEmail());
+    }
+}
@@ -0,0 +1,28 @@
+package com.nisum.users.dto;
+
+import com.nisum.users.annotations.ValidPassword;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Data
+public class UserUpdateDTO {
+
+    @Size(min = 1)
+    private String name;
+    @Email
+    @Size(min = 1)
+    private String email;
+    @ValidPassword(optional = true)
+    private String password;
+    @Valid
+    private List<PhoneDTO> addPhones;
+    private Set<UUID> removePhoneIds;
+    private Long version;
+
+}
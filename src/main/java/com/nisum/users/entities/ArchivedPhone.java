@@ -0,0 +1,34 @@
+package com.nisum.users.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * A phone of an {@link ArchivedUser}, keyed to it by the user id.
+ */
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(indexes = @Index(name = "ix_archived_phone_user_id", columnList = "userId"))
+public class ArchivedPhone {
+
+    @Id
+    @Column(columnDefinition = "UUID")
+    private UUID id;
+    @Column(nullable = false, columnDefinition = "UUID")
+    private UUID userId;
+    private String number;
+    private String cityCode;
+    private String countryCode;
+}
@@ -0,0 +1,84 @@
+package com.nisum.users.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * A user moved out of {@link User}'s table after a long inactivity, with the same columns and the time
+ * it was archived. The rows are only written and deleted by the tiering queries, so the entity is read-only.
+ */
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(indexes = @Index(name = "ix_archived_user_archived_at", columnList = "archivedAt"))
+public class ArchivedUser {
+
+    @Id
+    @Column(columnDefinition = "UUID")
+    private UUID id;
+    @Column(nullable = false)
+    private String name;
+    @Column(nullable = false, unique = true)
+    private String email;
+    @Column(nullable = false)
+    private String password;
+    @OneToMany
+    @JoinColumn(name = "userId", insertable = false, updatable = false)
+    private List<ArchivedPhone> phones;
+    private LocalDateTime lastLogin;
+    @Column(length = 512)
+    private String token;
+    private boolean isActive;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Long version;
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    /**
+     * Returns the archived user as a detached user, for lookups falling back to the archive.
+     *
+     * @return a user with the archived columns and phones
+     */
+    public User toUser() {
+        User user = User.builder()
+                .id(id)
+                .name(name)
+                .email(email)
+                .password(password)
+                .lastLogin(lastLogin)
+                .token(token)
+                .isActive(isActive)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .version(version)
+                .build();
+        user.setPhones(phones.stream()
+                .map(phone -> Phone.builder()
+                        .id(phone.getId())
+                        .number(phone.getNumber())
+                        .cityCode(phone.getCityCode())
+                        .countryCode(phone.getCountryCode())
+                        .user(user)
+                        .build())
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        return user;
+    }
+}
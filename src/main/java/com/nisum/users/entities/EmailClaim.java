@@ -0,0 +1,28 @@
+package com.nisum.users.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * The user holding an email, stored on the home shard of the email whichever shard holds the user, so
+ * the primary key rejects a second user taking the same email on another shard.
+ */
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailClaim {
+
+    @Id
+    private String email;
+    @Column(nullable = false)
+    private UUID userId;
+}
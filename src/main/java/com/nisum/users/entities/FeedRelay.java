@@ -0,0 +1,26 @@
+package com.nisum.users.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The state of the change feed relay: a single row, locked by the node relaying the outbox, holding the
+ * last position given to a change.
+ */
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeedRelay {
+
+    @Id
+    private Integer id;
+    @Column(nullable = false)
+    private Long lastPosition;
+}
@@ -0,0 +1,33 @@
+package com.nisum.users.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(indexes = @Index(name = "ix_idempotency_record_expires_at", columnList = "expiresAt"))
+public class IdempotencyRecord {
+
+    @Id
+    private String id;
+    @Column(nullable = false)
+    private String fingerprint;
+    @Column(length = 4096)
+    private String response;
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,51 @@
+package com.nisum.users.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_outbox_event_position", columnNames = "position")
+})
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+    /**
+     * The offset of the change in the feed, given by the relay once the row is committed and exposed to
+     * consumers as the id of the change.
+     */
+    @JsonProperty("id")
+    private Long position;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxEventType type;
+    @Column(columnDefinition = "UUID", nullable = false)
+    private UUID userId;
+    @Column(nullable = false)
+    private String email;
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+}
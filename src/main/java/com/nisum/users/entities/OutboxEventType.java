@@ -0,0 +1,8 @@
+package com.nisum.users.entities;
+
+public enum OutboxEventType {
+
+    USER_CREATED,
+    USER_LOGGED_IN,
+    USER_UPDATED
+}
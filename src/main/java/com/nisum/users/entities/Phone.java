@@ -1,21 +1,35 @@
 package com.nisum.users.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
 
+import java.util.Objects;
 import java.util.UUID;
 
-@Data
+@Getter
+@Setter
+@ToString
 @Entity
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
+@DynamicUpdate
+@Table(indexes = @Index(name = "ix_phone_user_id", columnList = "user_id"))
 public class Phone {
 
     @Id
@@ -25,4 +39,32 @@ public class Phone {
     private String number;
     private String cityCode;
     private String countryCode;
+    /**
+     * The user owning the phone. Phones are written through the user's phone set, so the foreign key is
+     * part of the phone's insert and the phones of a user are inserted in a single JDBC batch.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false, updatable = false)
+    private User user;
+
+    /**
+     * Phones are compared by identifier only, so a phone keeps the same identity inside a user's
+     * phone set before and after it is persisted.
+     *
+     * @param o the object to compare with
+     * @return true if both phones have the same non-null identifier
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Phone phone)) return false;
+        return id != null && Objects.equals(id, phone.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Phone.class.hashCode();
+    }
 }
@@ -1,5 +1,6 @@
 package com.nisum.users.entities;
 
+import com.nisum.users.annotations.ShardedUuid;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import lombok.AllArgsConstructor;
@@ -8,10 +9,11 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Data
@@ -19,22 +21,28 @@ import java.util.UUID;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "AppUser")
+@DynamicUpdate
+@Table(name = "AppUser", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_app_user_email", columnNames = "email")
+}, indexes = {
+        @Index(name = "ix_app_user_updated_at", columnList = "updatedAt"),
+        @Index(name = "ix_app_user_last_login", columnList = "lastLogin")
+})
 public class User {
 
     @Id
-    @GeneratedValue
+    @ShardedUuid
     @Column(columnDefinition = "UUID")
     private UUID id;
     @Column(nullable = false)
     private String name;
     @Email
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
     @Column(nullable = false)
     private String password;
-    @OneToMany
-    private List<Phone> phones;
+    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
+    private Set<Phone> phones;
     private LocalDateTime lastLogin;
     private String token;
     private boolean isActive;
@@ -42,4 +50,6 @@ public class User {
     private LocalDateTime createdAt;
     @UpdateTimestamp
     private LocalDateTime  updatedAt;
+    @Version
+    private Long version;
 }
@@ -1,8 +1,12 @@
 package com.nisum.users.exceptions;
 
+/**
+ * Raised when an email is already registered. It carries no stack trace, since it is an expected
+ * outcome rendered as a 409 response, so a single instance can be shared.
+ */
 public class EmailAlreadyExistsException extends RuntimeException {
 
     public EmailAlreadyExistsException() {
-        super("Email already exists");
+        super("Email already exists", null, false, false);
     }
 }
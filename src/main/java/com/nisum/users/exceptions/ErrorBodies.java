@@ -0,0 +1,35 @@
+package com.nisum.users.exceptions;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public final class ErrorBodies {
+
+    private ErrorBodies() {
+    }
+
+    /**
+     * Renders the JSON error body shared by every error response.
+     *
+     * @param objectMapper the mapper providing the JSON factory
+     * @param error the reason phrase of the response status
+     * @param message the error message
+     * @return the body as UTF-8 JSON bytes
+     */
+    public static byte[] render(ObjectMapper objectMapper, String error, String message) {
+        ByteArrayBuilder buffer = new ByteArrayBuilder(64 + message.length());
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("error", error);
+            generator.writeStringField("message", message);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,12 @@
+package com.nisum.users.exceptions;
+
+/**
+ * Raised when an authenticated user acts on a resource it does not own. It carries no stack trace,
+ * since it is an expected outcome rendered as a 403 response, so a single instance can be shared.
+ */
+public class ForbiddenException extends RuntimeException {
+
+    public ForbiddenException() {
+        super("Access denied", null, false, false);
+    }
+}
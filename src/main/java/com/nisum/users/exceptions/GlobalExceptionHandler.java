@@ -1,52 +1,78 @@
 package com.nisum.users.exceptions;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Renders the error responses straight to JSON bytes. Bodies with a fixed message are rendered once
+ * and reused, and validation errors are streamed through a JSON generator without intermediate maps,
+ * so an error response costs less than the success path it replaces.
+ */
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    private static final int MAX_CACHED_BODIES = 256;
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, byte[]> forbiddenBodies = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> notFoundBodies = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> conflictBodies = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> unprocessableBodies = new ConcurrentHashMap<>();
+
     /**
      * Handles validation exceptions by constructing a response entity with details of validation errors.
+     * When a field has several errors, the last message is kept.
      *
      * @param ex the MethodArgumentNotValidException exception that contains details about validation failures
-     * @return a ResponseEntity containing a map with error information and field-specific error messages,
+     * @return a ResponseEntity containing the error information and field-specific error messages,
      *         with an HTTP status of Bad Request
      */
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        Map<String, Object> errorResponse = new LinkedHashMap<>();
-        errorResponse.put("error", "Bad Request");
-
-        Map<String, String> fieldErrors = new LinkedHashMap<>();
-        for (FieldError error : ex.getBindingResult().getFieldErrors()) {
-            fieldErrors.put(error.getField(), error.getDefaultMessage());
+    public ResponseEntity<byte[]> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        List<FieldError> errors = ex.getBindingResult().getFieldErrors();
+        ByteArrayBuilder buffer = new ByteArrayBuilder(64 + errors.size() * 64);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("error", "Bad Request");
+            generator.writeObjectFieldStart("fieldErrors");
+            for (int i = 0; i < errors.size(); i++) {
+                if (isRepeated(errors, i)) continue;
+                generator.writeStringField(errors.get(i).getField(), lastMessage(errors, i));
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-
-        errorResponse.put("fieldErrors", fieldErrors);
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        return json(HttpStatus.BAD_REQUEST, buffer.toByteArray());
     }
 
     /**
      * Handles NotFoundException and constructs a response entity with error details.
      *
      * @param ex the NotFoundException thrown when a requested resource is not found
-     * @return a ResponseEntity containing a map with error information and a status of 404 Not Found
+     * @return a ResponseEntity containing the error information and a status of 404 Not Found
      */
     @ExceptionHandler(NotFoundException.class)
-    public ResponseEntity<Map<String, String>> handleNotFoundException(NotFoundException ex) {
-        Map<String, String> errorResponse = new HashMap<>();
-        errorResponse.put("error", "Not Found");
-        errorResponse.put("message", ex.getMessage());
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+    public ResponseEntity<byte[]> handleNotFoundException(NotFoundException ex) {
+        return json(HttpStatus.NOT_FOUND, body(notFoundBodies, "Not Found", ex.getMessage()));
     }
 
     /**
@@ -57,10 +83,88 @@ public class GlobalExceptionHandler {
      * @return a ResponseEntity containing the error details and HTTP status
      */
     @ExceptionHandler(EmailAlreadyExistsException.class)
-    public ResponseEntity<Map<String, String>> handleEmailAlreadyExistsException(EmailAlreadyExistsException ex) {
-        Map<String, String> errorResponse = new HashMap<>();
-        errorResponse.put("error", "Conflict");
-        errorResponse.put("message", ex.getMessage());
-        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    public ResponseEntity<byte[]> handleEmailAlreadyExistsException(EmailAlreadyExistsException ex) {
+        return json(HttpStatus.CONFLICT, body(conflictBodies, "Conflict", ex.getMessage()));
+    }
+
+    /**
+     * Handles optimistic locking failures, raised when a user was modified by another request
+     * between being read and written, by returning a response entity with a conflict status.
+     *
+     * @param ex the exception thrown when the stored version no longer matches
+     * @return a ResponseEntity containing the error details and HTTP status
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<byte[]> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        return json(HttpStatus.CONFLICT, body(conflictBodies, "Conflict", "User was modified concurrently"));
+    }
+
+    /**
+     * Handles the ForbiddenException by returning a response entity with a forbidden status, with the
+     * same body as an unauthenticated request.
+     *
+     * @param ex the exception thrown when a user acts on a resource it does not own
+     * @return a ResponseEntity containing the error details and HTTP status
+     */
+    @ExceptionHandler(ForbiddenException.class)
+    public ResponseEntity<byte[]> handleForbiddenException(ForbiddenException ex) {
+        return json(HttpStatus.FORBIDDEN, body(forbiddenBodies, "Forbidden", ex.getMessage()));
+    }
+
+    /**
+     * Handles the IdempotencyKeyInProgressException, raised when a request with the same idempotency key
+     * is still running, by returning a response entity with a conflict status.
+     *
+     * @param ex the exception thrown when the wait for the concurrent request timed out
+     * @return a ResponseEntity containing the error details and HTTP status
+     */
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    public ResponseEntity<byte[]> handleIdempotencyKeyInProgressException(IdempotencyKeyInProgressException ex) {
+        return json(HttpStatus.CONFLICT, body(conflictBodies, "Conflict", ex.getMessage()));
+    }
+
+    /**
+     * Handles the InvalidIdempotencyKeyException by returning a response entity with an unprocessable
+     * entity status.
+     *
+     * @param ex the exception thrown when an idempotency key is too long or was used with another request
+     * @return a ResponseEntity containing the error details and HTTP status
+     */
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<byte[]> handleInvalidIdempotencyKeyException(InvalidIdempotencyKeyException ex) {
+        return json(HttpStatus.UNPROCESSABLE_ENTITY, body(unprocessableBodies, "Unprocessable Entity", ex.getMessage()));
+    }
+
+    /**
+     * Returns the rendered body for an error message, rendering and caching it on first use. Once the
+     * cache is full, new messages are rendered on every call.
+     */
+    private byte[] body(Map<String, byte[]> cache, String error, String message) {
+        byte[] body = cache.get(message);
+        if (body != null) return body;
+
+        body = ErrorBodies.render(objectMapper, error, message);
+        if (cache.size() < MAX_CACHED_BODIES) cache.putIfAbsent(message, body);
+        return body;
+    }
+
+    private static boolean isRepeated(List<FieldError> errors, int index) {
+        String field = errors.get(index).getField();
+        for (int i = 0; i < index; i++) {
+            if (errors.get(i).getField().equals(field)) return true;
+        }
+        return false;
+    }
+
+    private static String lastMessage(List<FieldError> errors, int index) {
+        String field = errors.get(index).getField();
+        for (int i = errors.size() - 1; i > index; i--) {
+            if (errors.get(i).getField().equals(field)) return errors.get(i).getDefaultMessage();
+        }
+        return errors.get(index).getDefaultMessage();
+    }
+
+    private static ResponseEntity<byte[]> json(HttpStatus status, byte[] body) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
@@ -0,0 +1,13 @@
+package com.nisum.users.exceptions;
+
+/**
+ * Raised when a request with the same idempotency key is still running after the wait timeout. It
+ * carries no stack trace, since it is an expected outcome rendered as a 409 response, so a single
+ * instance can be shared.
+ */
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    public IdempotencyKeyInProgressException() {
+        super("A request with this Idempotency-Key is still in progress", null, false, false);
+    }
+}
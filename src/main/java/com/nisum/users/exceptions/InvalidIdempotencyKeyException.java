@@ -0,0 +1,13 @@
+package com.nisum.users.exceptions;
+
+/**
+ * Raised when an idempotency key is too long or was already used with a different request. It carries
+ * no stack trace, since it is an expected outcome rendered as a 422 response, so instances with a
+ * fixed message can be shared.
+ */
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(String message) {
+        super(message, null, false, false);
+    }
+}
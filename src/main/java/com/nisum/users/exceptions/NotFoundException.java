@@ -1,8 +1,12 @@
 package com.nisum.users.exceptions;
 
+/**
+ * Raised for missing users and failed logins. It carries no stack trace, since it is an expected
+ * outcome rendered as a 404 response, so instances with a fixed message can be shared.
+ */
 public class NotFoundException extends RuntimeException {
 
     public NotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
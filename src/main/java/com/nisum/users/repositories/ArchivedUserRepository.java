@@ -0,0 +1,104 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.entities.ArchivedUser;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Reads the archive and moves users between the hot and archive tables. The moves are set-based
+ * statements over a batch of ids, so a batch costs a fixed number of statements whatever its size,
+ * and they must run in the caller's transaction so a user is never in both tables nor in neither.
+ */
+public interface ArchivedUserRepository extends JpaRepository<ArchivedUser, UUID> {
+
+    @EntityGraph(attributePaths = "phones")
+    Optional<ArchivedUser> findWithPhonesById(UUID id);
+
+    @EntityGraph(attributePaths = "phones")
+    Optional<ArchivedUser> findWithPhonesByEmail(String email);
+
+    @Query("select a.id from ArchivedUser a where a.email = :email")
+    Optional<UUID> findIdByEmail(@Param("email") String email);
+
+    @Query("select a.id from ArchivedUser a where a.id in :ids")
+    List<UUID> findIdsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("select a.email from ArchivedUser a")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamAllEmails();
+
+    /**
+     * Selects the users inactive since before the cutoff, oldest first, and locks their rows until the
+     * batch commits, so a login or update cannot change a user between its copy and its deletion.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u.id from User u where u.lastLogin < :cutoff order by u.lastLogin")
+    List<UUID> findInactiveUserIds(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into archived_user (id, name, email, password, last_login, token, is_active, created_at, "
+            + "updated_at, version, archived_at) select id, name, email, password, last_login, token, is_active, "
+            + "created_at, updated_at, version, :now from app_user where id in (:ids) and last_login < :cutoff",
+            nativeQuery = true)
+    int copyUsersToArchive(@Param("ids") Collection<UUID> ids, @Param("cutoff") LocalDateTime cutoff,
+                           @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "insert into archived_phone (id, user_id, number, city_code, country_code) "
+            + "select id, user_id, number, city_code, country_code from phone where user_id in (:ids)",
+            nativeQuery = true)
+    int copyPhonesToArchive(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query(value = "delete from phone where user_id in (:ids)", nativeQuery = true)
+    int deleteHotPhones(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query(value = "delete from app_user u where u.id in (:ids) and u.last_login < :cutoff "
+            + "and u.version is not distinct from (select a.version from archived_user a where a.id = u.id)",
+            nativeQuery = true)
+    int deleteHotUsers(@Param("ids") Collection<UUID> ids, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Locks an archived user until the restore commits, so concurrent restores of the same user run one
+     * after the other and the later ones find the user gone from the archive.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a.id from ArchivedUser a where a.id = :id")
+    Optional<UUID> lockById(@Param("id") UUID id);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into app_user (id, name, email, password, last_login, token, is_active, created_at, "
+            + "updated_at, version) select id, name, email, password, last_login, token, is_active, created_at, "
+            + "updated_at, version from archived_user where id = :id", nativeQuery = true)
+    int copyUserToHot(@Param("id") UUID id);
+
+    @Modifying
+    @Query(value = "insert into phone (id, user_id, number, city_code, country_code) "
+            + "select id, user_id, number, city_code, country_code from archived_phone where user_id = :id", nativeQuery = true)
+    int copyPhonesToHot(@Param("id") UUID id);
+
+    @Modifying
+    @Query(value = "delete from archived_phone where user_id = :id", nativeQuery = true)
+    int deleteArchivedPhones(@Param("id") UUID id);
+
+    @Modifying
+    @Query(value = "delete from archived_user where id = :id", nativeQuery = true)
+    int deleteArchivedUser(@Param("id") UUID id);
+}
@@ -0,0 +1,20 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.entities.EmailClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.UUID;
+
+public interface EmailClaimRepository extends JpaRepository<EmailClaim, String> {
+
+    @Modifying
+    @Query(value = "insert into email_claim (email, user_id) values (:email, :userId)", nativeQuery = true)
+    void insert(@Param("email") String email, @Param("userId") UUID userId);
+
+    @Modifying
+    @Query("delete from EmailClaim c where c.email = :email and c.userId = :userId")
+    int release(@Param("email") String email, @Param("userId") UUID userId);
+}
@@ -0,0 +1,14 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.entities.FeedRelay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface FeedRelayRepository extends JpaRepository<FeedRelay, Integer> {
+
+    @Query(value = "select * from feed_relay where id = :id for update skip locked", nativeQuery = true)
+    Optional<FeedRelay> claim(@Param("id") int id);
+}
@@ -0,0 +1,40 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.entities.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "insert into idempotency_record (id, fingerprint, created_at, expires_at) "
+            + "values (:id, :fingerprint, :createdAt, :expiresAt)", nativeQuery = true)
+    void insert(@Param("id") String id, @Param("fingerprint") String fingerprint,
+                @Param("createdAt") LocalDateTime createdAt, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("update IdempotencyRecord r set r.response = :response, r.expiresAt = :expiresAt where r.id = :id")
+    int complete(@Param("id") String id, @Param("response") String response, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.response is null")
+    int release(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.expiresAt < :now")
+    int deleteExpired(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpiredBefore(@Param("now") LocalDateTime now);
+}
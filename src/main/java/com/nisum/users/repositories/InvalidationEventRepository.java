@@ -0,0 +1,25 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.entities.InvalidationEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface InvalidationEventRepository extends JpaRepository<InvalidationEvent, Long> {
+
+    List<InvalidationEvent> findTop500ByIdGreaterThanOrderByIdAsc(Long id);
+
+    @Query("select max(e.id) from InvalidationEvent e")
+    Optional<Long> findMaxId();
+
+    @Modifying
+    @Transactional
+    @Query("delete from InvalidationEvent e where e.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,32 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.entities.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    List<OutboxEvent> findByPositionIsNullOrderByIdAsc(Limit limit);
+
+    List<OutboxEvent> findByPositionGreaterThanOrderByPositionAsc(Long position, Limit limit);
+
+    List<OutboxEvent> findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc(Long after, Long upTo, Limit limit);
+
+    @Query("select max(e.position) from OutboxEvent e")
+    Optional<Long> findMaxPosition();
+
+    @Modifying
+    @Transactional
+    @Query("delete from OutboxEvent e where e.occurredAt < :before")
+    int deleteOccurredBefore(@Param("before") LocalDateTime before);
+}
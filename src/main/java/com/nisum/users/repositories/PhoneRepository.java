@@ -1,9 +0,0 @@
-package com.nisum.users.repositories;
-
-import com.nisum.users.entities.Phone;
-import org.springframework.data.jpa.repository.JpaRepository;
-
-import java.util.UUID;
-
-public interface PhoneRepository extends JpaRepository<Phone, UUID> {
-}
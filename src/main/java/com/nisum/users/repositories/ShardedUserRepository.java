@@ -0,0 +1,153 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.entities.User;
+import com.nisum.users.utils.ShardRouter;
+import io.micrometer.observation.annotation.Observed;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Routes the user lookups that are not bound to a single shard. Lookups by email go to the home shard
+ * of the email first and only scatter to the other shards on a miss, which happens for unknown emails
+ * and for users whose email changed since they were created. Lists are gathered from every shard in
+ * parallel. Users read on another shard are detached, so their phones are loaded before returning.
+ */
+@Component
+@RequiredArgsConstructor
+@Observed(name = "users.repository")
+public class ShardedUserRepository {
+
+    /**
+     * Orders ids as the database does, comparing their bits as unsigned numbers.
+     */
+    public static final Comparator<UUID> ID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final UserRepository userRepository;
+    private final ArchivedUserRepository archivedUserRepository;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Finds a user by email on its home shard, falling back to the other shards on a miss.
+     *
+     * @param email the email to look up
+     * @return the user, if it exists on any shard
+     */
+    public Optional<User> findByEmail(String email) {
+        int home = shardRouter.shardOf(email);
+        Optional<User> user = shardRouter.onShard(home, () -> userRepository.findByEmail(email));
+        if (user.isPresent() || !shardRouter.isSharded()) return user;
+
+        return shardRouter.scatter(shard -> shard == home ? Optional.<User>empty() : userRepository.findByEmail(email))
+                .stream()
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    /**
+     * Finds the shard holding a user whose email does not route to the given shard.
+     *
+     * @param email the email to look up
+     * @param excluded the shard already searched
+     * @return the shard holding the user, if any
+     */
+    public OptionalInt findShardByEmail(String email, int excluded) {
+        if (!shardRouter.isSharded()) return OptionalInt.empty();
+
+        List<Boolean> found = shardRouter.scatter(shard -> shard != excluded && userRepository.findByEmail(email).isPresent());
+        return IntStream.range(0, found.size()).filter(found::get).findFirst();
+    }
+
+    /**
+     * Retrieves the users of every shard, with their phones loaded.
+     *
+     * @return the users of every shard, grouped by shard
+     */
+    public List<User> findAll() {
+        return shardRouter.scatter(shard -> withPhones(userRepository.findAll()))
+                .stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    /**
+     * Retrieves a page of users ordered by id, with their phones loaded. Every shard returns its own
+     * first {@code limit} users after the given id and the pages are merged, so the next page
+     * starts after the last id returned.
+     *
+     * @param after the id of the last user of the previous page, or null for the first page
+     * @param limit the maximum number of users to return
+     * @return the users following {@code after}, ordered by id
+     */
+    public List<User> findPage(UUID after, int limit) {
+        return shardRouter.scatter(shard -> withPhones(after == null
+                        ? userRepository.findAllByOrderByIdAsc(Limit.of(limit))
+                        : userRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit))))
+                .stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(User::getId, ID_ORDER))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Counts the users of every shard.
+     *
+     * @return the total number of users
+     */
+    public long count() {
+        return shardRouter.scatter(shard -> userRepository.count()).stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Streams the email of every user, hot or archived, to the consumer. Shards are read in parallel, so
+     * the consumer must be thread-safe; when sharding is disabled the caller must provide the transaction.
+     *
+     * @param consumer the consumer receiving the emails
+     */
+    public void forEachEmail(Consumer<String> consumer) {
+        shardRouter.scatter(shard -> {
+            try (Stream<String> emails = userRepository.streamAllEmails()) {
+                emails.forEach(consumer);
+            }
+            try (Stream<String> emails = archivedUserRepository.streamAllEmails()) {
+                emails.forEach(consumer);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Streams the email of every user created or changed since the given time to the consumer, with the
+     * same threading and transaction rules as {@link #forEachEmail(Consumer)}.
+     *
+     * @param since the earliest update time to include
+     * @param consumer the consumer receiving the emails
+     */
+    public void forEachEmailUpdatedSince(LocalDateTime since, Consumer<String> consumer) {
+        shardRouter.scatter(shard -> {
+            try (Stream<String> emails = userRepository.streamEmailsUpdatedSince(since)) {
+                emails.forEach(consumer);
+            }
+            return null;
+        });
+    }
+
+    private static List<User> withPhones(List<User> users) {
+        users.forEach(user -> Hibernate.initialize(user.getPhones()));
+        return users;
+    }
+}
@@ -0,0 +1,26 @@
+package com.nisum.users.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyStore {
+
+    int MAX_KEY_LENGTH = 255;
+
+    /**
+     * Runs the action at most once per idempotency key while its result is retained. The first request
+     * with a key runs the action and stores its result; concurrent requests with the same key wait for
+     * it, and later ones get the stored result. A failed action stores nothing, so the next request
+     * with the key runs it again.
+     *
+     * @param key the idempotency key sent by the client
+     * @param fingerprint a fingerprint of the request, which must match the one stored with the key
+     * @param type the type of the result
+     * @param action the action to run
+     * @return the result of the action, run now or by an earlier request with the same key
+     * @throws com.nisum.users.exceptions.InvalidIdempotencyKeyException if the key is too long or was
+     *         used with a different request
+     * @throws com.nisum.users.exceptions.IdempotencyKeyInProgressException if the request holding the key
+     *         did not complete within the wait timeout
+     */
+    <T> T execute(String key, String fingerprint, Class<T> type, Supplier<T> action);
+}
@@ -0,0 +1,8 @@
+package com.nisum.users.service;
+
+import com.nisum.users.dto.InvalidationMessage;
+
+public interface InvalidationBus {
+
+    void publish(InvalidationMessage message);
+}
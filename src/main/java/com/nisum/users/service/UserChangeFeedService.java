@@ -0,0 +1,12 @@
+package com.nisum.users.service;
+
+import com.nisum.users.entities.OutboxEvent;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+public interface UserChangeFeedService {
+
+    List<OutboxEvent> getChanges(Long after, int limit);
+    SseEmitter subscribe(Long after);
+}
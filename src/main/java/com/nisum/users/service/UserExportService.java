@@ -0,0 +1,13 @@
+package com.nisum.users.service;
+
+import com.nisum.users.dto.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+public interface UserExportService {
+
+    void export(ExportFormat format, int partitions, OutputStream outputStream) throws IOException;
+    void export(ExportFormat format, int partitions, Path target) throws IOException;
+}
@@ -2,6 +2,7 @@ package com.nisum.users.service;
 
 import com.nisum.users.dto.UserCreateDTO;
 import com.nisum.users.dto.UserLoginDTO;
+import com.nisum.users.dto.UserUpdateDTO;
 import com.nisum.users.entities.User;
 
 import java.util.List;
@@ -10,7 +11,9 @@ import java.util.UUID;
 public interface UserService {
 
     List<User> getUsers();
+    List<User> getUsers(UUID after, int limit);
     User getUserById(UUID id);
     User createUser(UserCreateDTO userCreateDTO);
     User login(UserLoginDTO userLoginDTO);
+    User updateUser(UUID id, UserUpdateDTO userUpdateDTO);
 }
@@ -0,0 +1,59 @@
+package com.nisum.users.service;
+
+import com.nisum.users.entities.User;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+public interface UserTieringService {
+
+    /**
+     * Moves the users inactive past the threshold, with their phones, to the archive in throttled batches.
+     *
+     * @return the number of users archived
+     */
+    int archiveInactiveUsers();
+
+    /**
+     * Looks up an archived user on the shard of the current transaction.
+     *
+     * @param id the id of the user
+     * @return the archived user, detached, if any
+     */
+    Optional<User> findArchivedById(UUID id);
+
+    /**
+     * Looks up an archived user on the home shard of the email, then on the other shards.
+     *
+     * @param email the email of the user
+     * @return the archived user, detached, if any
+     */
+    Optional<User> findArchivedByEmail(String email);
+
+    /**
+     * Finds the shard archiving a user, searching the home shard of the email first.
+     *
+     * @param email the email of the user
+     * @return the shard holding the archived user, if any
+     */
+    OptionalInt findArchivedShardByEmail(String email);
+
+    /**
+     * Moves an archived user and its phones back to the hot table, in the current transaction. The
+     * archived row is locked first, so a concurrent restore of the same user waits for this one to
+     * commit and then returns the user from the hot table instead of copying it again.
+     *
+     * @param id the id of the user
+     * @return the restored user, managed, or empty if the user is neither archived nor hot
+     */
+    Optional<User> restore(UUID id);
+
+    /**
+     * Moves the archived user with the given email back to the hot table, in the current transaction.
+     *
+     * @param email the email of the user
+     * @return the restored user, managed, or empty if no user with that email is archived
+     */
+    Optional<User> restoreByEmail(String email);
+}
@@ -0,0 +1,40 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.exceptions.IdempotencyKeyInProgressException;
+import com.nisum.users.exceptions.InvalidIdempotencyKeyException;
+import com.nisum.users.service.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.function.Supplier;
+
+/**
+ * Base class of the idempotency stores. Completed results are retained for {@code idempotency.ttl-ms},
+ * and a request waits at most {@code idempotency.wait-timeout-ms} for a concurrent request holding the
+ * same key before giving up with a conflict.
+ */
+public abstract class AbstractIdempotencyStore implements IdempotencyStore {
+
+    protected static final InvalidIdempotencyKeyException KEY_TOO_LONG =
+            new InvalidIdempotencyKeyException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+    protected static final InvalidIdempotencyKeyException KEY_REUSED =
+            new InvalidIdempotencyKeyException("Idempotency-Key was already used with a different request");
+    protected static final IdempotencyKeyInProgressException IN_PROGRESS = new IdempotencyKeyInProgressException();
+
+    @Value("${idempotency.ttl-ms:86400000}")
+    protected long ttlMs;
+
+    @Value("${idempotency.wait-timeout-ms:10000}")
+    protected long waitTimeoutMs;
+
+    @Override
+    public <T> T execute(String key, String fingerprint, Class<T> type, Supplier<T> action) {
+        if (key.length() > MAX_KEY_LENGTH) throw KEY_TOO_LONG;
+        return executeOnce(key, fingerprint, type, action);
+    }
+
+    /**
+     * Runs the action at most once for a valid key, as described by
+     * {@link IdempotencyStore#execute(String, String, Class, Supplier)}.
+     */
+    protected abstract <T> T executeOnce(String key, String fingerprint, Class<T> type, Supplier<T> action);
+}
@@ -0,0 +1,92 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.dto.InvalidationMessage;
+import com.nisum.users.service.InvalidationBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Base class of the invalidation buses. Messages published inside a transaction are only queued once
+ * it commits, so other nodes never drop cached state for a change that was rolled back. Queued messages
+ * are coalesced, so a burst of changes to the same user is sent once, and are handed to the transport
+ * in batches on every flush interval. Received messages are republished as local application events,
+ * so consumers only need an {@code @EventListener} for {@link InvalidationMessage}.
+ */
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final Set<InvalidationMessage> pending = new LinkedHashSet<>();
+
+    @Value("${invalidation.max-batch-size:500}")
+    private int maxBatchSize;
+
+    protected AbstractInvalidationBus(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Queues an invalidation message, deferring it until after commit when a transaction is active.
+     *
+     * @param message the message describing the changed entity
+     */
+    @Override
+    public void publish(InvalidationMessage message) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(message);
+                }
+            });
+        } else {
+            enqueue(message);
+        }
+    }
+
+    /**
+     * Sends the coalesced pending messages to the transport in batches of at most
+     * {@code invalidation.max-batch-size} messages.
+     */
+    @Scheduled(fixedDelayString = "${invalidation.flush-interval-ms:50}")
+    public void flush() {
+        List<InvalidationMessage> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (int from = 0; from < batch.size(); from += maxBatchSize) {
+            send(batch.subList(from, Math.min(from + maxBatchSize, batch.size())));
+        }
+    }
+
+    /**
+     * Broadcasts a batch of messages to every node, including this one.
+     *
+     * @param batch the coalesced messages to broadcast
+     */
+    protected abstract void send(List<InvalidationMessage> batch);
+
+    /**
+     * Delivers a received message to the local listeners.
+     *
+     * @param message the received message
+     */
+    protected void deliver(InvalidationMessage message) {
+        eventPublisher.publishEvent(message);
+    }
+
+    private void enqueue(InvalidationMessage message) {
+        synchronized (pending) {
+            pending.add(message);
+        }
+    }
+}
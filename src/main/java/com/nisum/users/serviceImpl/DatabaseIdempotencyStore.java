@@ -0,0 +1,121 @@
+package com.nisum.users.serviceImpl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.entities.IdempotencyRecord;
+import com.nisum.users.repositories.IdempotencyRecordRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency store backed by the shared database, so a retry reaching another node still gets the
+ * original result. A request claims a key by inserting its row, which the primary key lets only one
+ * request do; the result is stored in the row as JSON once the action completes. Requests finding the
+ * row wait for the result by polling it every {@code idempotency.poll-interval-ms}.
+ * <p>
+ * A claimed row expires after {@code idempotency.lease-ms} until it holds a result, so the key of a
+ * node that died while running the action is released. An action running longer than the lease may
+ * therefore run twice.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "database")
+public class DatabaseIdempotencyStore extends AbstractIdempotencyStore {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${idempotency.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${idempotency.poll-interval-ms:50}")
+    private long pollIntervalMs;
+
+    @Override
+    protected <T> T executeOnce(String key, String fingerprint, Class<T> type, Supplier<T> action) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        while (true) {
+            if (claim(key, fingerprint)) return run(key, action);
+
+            LocalDateTime now = LocalDateTime.now();
+            Optional<IdempotencyRecord> record = idempotencyRecordRepository.findById(key);
+            if (record.isPresent()) {
+                if (!record.get().getFingerprint().equals(fingerprint)) throw KEY_REUSED;
+                if (record.get().getExpiresAt().isBefore(now)) {
+                    idempotencyRecordRepository.deleteExpired(key, now);
+                    continue;
+                }
+                if (record.get().getResponse() != null) return read(record.get().getResponse(), type);
+            }
+
+            if (System.nanoTime() > deadline) throw IN_PROGRESS;
+            sleep();
+        }
+    }
+
+    /**
+     * Deletes the expired rows.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        idempotencyRecordRepository.deleteExpiredBefore(LocalDateTime.now());
+    }
+
+    private boolean claim(String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            idempotencyRecordRepository.insert(key, fingerprint, now, now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private <T> T run(String key, Supplier<T> action) {
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            idempotencyRecordRepository.release(key);
+            throw e;
+        }
+        LocalDateTime expiresAt = LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(ttlMs));
+        idempotencyRecordRepository.complete(key, write(result), expiresAt);
+        return result;
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pollIntervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw IN_PROGRESS;
+        }
+    }
+
+    private String write(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> type) {
+        try {
+            return objectMapper.readValue(response, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
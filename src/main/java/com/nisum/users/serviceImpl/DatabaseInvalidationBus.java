@@ -0,0 +1,98 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.dto.InvalidationMessage;
+import com.nisum.users.entities.InvalidationEvent;
+import com.nisum.users.repositories.InvalidationEventRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Invalidation bus backed by the shared database. Each batch is inserted into the
+ * {@code invalidation_event} table and delivered locally right away; every node polls the table for
+ * rows written by other nodes since the last id it has seen. Because identity values are assigned
+ * before commit, a gap in the ids may be a transaction that is still committing, so polling waits up
+ * to {@code invalidation.gap-timeout-ms} for it before skipping the gap.
+ */
+@Service
+@ConditionalOnProperty(name = "invalidation.bus", havingValue = "database")
+public class DatabaseInvalidationBus extends AbstractInvalidationBus {
+
+    private static final int POLL_BATCH_SIZE = 500;
+
+    private final InvalidationEventRepository invalidationEventRepository;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${invalidation.gap-timeout-ms:1000}")
+    private long gapTimeoutMs;
+
+    @Value("${invalidation.retention-minutes:10}")
+    private long retentionMinutes;
+
+    private long lastSeenId;
+    private long gapSince;
+
+    public DatabaseInvalidationBus(ApplicationEventPublisher eventPublisher,
+                                   InvalidationEventRepository invalidationEventRepository) {
+        super(eventPublisher);
+        this.invalidationEventRepository = invalidationEventRepository;
+    }
+
+    @PostConstruct
+    void init() {
+        lastSeenId = invalidationEventRepository.findMaxId().orElse(0L);
+    }
+
+    @Override
+    protected void send(List<InvalidationMessage> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        invalidationEventRepository.saveAll(batch.stream()
+                .map(message -> InvalidationEvent.builder()
+                        .nodeId(nodeId)
+                        .entityType(message.getEntityType())
+                        .entityId(message.getId())
+                        .email(message.getEmail())
+                        .createdAt(now)
+                        .build())
+                .toList());
+        batch.forEach(this::deliver);
+    }
+
+    /**
+     * Delivers the invalidation events written by other nodes since the last poll.
+     */
+    @Scheduled(fixedDelayString = "${invalidation.poll-interval-ms:100}")
+    public synchronized void poll() {
+        List<InvalidationEvent> events;
+        do {
+            events = invalidationEventRepository.findTop500ByIdGreaterThanOrderByIdAsc(lastSeenId);
+            for (InvalidationEvent event : events) {
+                if (event.getId() != lastSeenId + 1) {
+                    long now = System.currentTimeMillis();
+                    if (gapSince == 0) gapSince = now;
+                    if (now - gapSince < gapTimeoutMs) return;
+                }
+                gapSince = 0;
+                lastSeenId = event.getId();
+                if (!nodeId.equals(event.getNodeId())) {
+                    deliver(new InvalidationMessage(event.getEntityType(), event.getEntityId(), event.getEmail()));
+                }
+            }
+        } while (events.size() == POLL_BATCH_SIZE);
+    }
+
+    /**
+     * Deletes the invalidation events older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${invalidation.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        invalidationEventRepository.deleteCreatedBefore(LocalDateTime.now().minusMinutes(retentionMinutes));
+    }
+}
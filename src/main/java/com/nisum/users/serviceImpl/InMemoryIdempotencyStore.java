@@ -0,0 +1,117 @@
+package com.nisum.users.serviceImpl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency store local to this node. Keys are kept in insertion order and the oldest are evicted
+ * once {@code idempotency.max-entries} is reached, besides expiring after the retention period, so
+ * memory stays bounded however many keys clients send. Requests waiting for a concurrent request
+ * holding the same key block on its future rather than polling. The map lock is only held to look up
+ * and register keys, never while the action runs.
+ */
+@Service
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore extends AbstractIdempotencyStore {
+
+    private static final Object FAILED = new Object();
+
+    private final Map<String, Entry> entries;
+
+    public InMemoryIdempotencyStore(@Value("${idempotency.max-entries:100000}") int maxEntries) {
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    protected <T> T executeOnce(String key, String fingerprint, Class<T> type, Supplier<T> action) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        while (true) {
+            Entry entry;
+            Entry own = null;
+            synchronized (entries) {
+                entry = entries.get(key);
+                if (entry == null || entry.isExpired()) {
+                    own = new Entry(fingerprint);
+                    entries.put(key, own);
+                }
+            }
+            if (own != null) return run(key, own, action);
+            if (!entry.fingerprint.equals(fingerprint)) throw KEY_REUSED;
+
+            Object result = await(entry, deadline);
+            if (result != FAILED) return type.cast(result);
+        }
+    }
+
+    /**
+     * Removes the expired entries.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        synchronized (entries) {
+            entries.values().removeIf(Entry::isExpired);
+        }
+    }
+
+    private <T> T run(String key, Entry entry, Supplier<T> action) {
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.result.complete(FAILED);
+            throw e;
+        }
+        entry.expiresAt = System.currentTimeMillis() + ttlMs;
+        entry.result.complete(result);
+        return result;
+    }
+
+    /**
+     * Waits for the request holding the key, returning its result, or {@link #FAILED} if it failed.
+     */
+    private Object await(Entry entry, long deadline) {
+        try {
+            return entry.result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw IN_PROGRESS;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw IN_PROGRESS;
+        } catch (ExecutionException e) {
+            return FAILED;
+        }
+    }
+
+    private static final class Entry {
+
+        private final String fingerprint;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
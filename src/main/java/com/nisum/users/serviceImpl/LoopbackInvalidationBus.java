@@ -0,0 +1,44 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.dto.InvalidationMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * In-process invalidation bus, delivering every batch to all the application contexts running in the
+ * same JVM. It is the default bus for a single node.
+ */
+@Service
+@ConditionalOnProperty(name = "invalidation.bus", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationBus extends AbstractInvalidationBus {
+
+    private static final Set<LoopbackInvalidationBus> BUSES = new CopyOnWriteArraySet<>();
+
+    public LoopbackInvalidationBus(ApplicationEventPublisher eventPublisher) {
+        super(eventPublisher);
+    }
+
+    @PostConstruct
+    void register() {
+        BUSES.add(this);
+    }
+
+    @PreDestroy
+    void unregister() {
+        BUSES.remove(this);
+    }
+
+    @Override
+    protected void send(List<InvalidationMessage> batch) {
+        for (LoopbackInvalidationBus bus : BUSES) {
+            batch.forEach(bus::deliver);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.entities.FeedRelay;
+import com.nisum.users.entities.OutboxEvent;
+import com.nisum.users.repositories.FeedRelayRepository;
+import com.nisum.users.repositories.OutboxEventRepository;
+import com.nisum.users.service.UserChangeFeedService;
+import com.nisum.users.utils.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Relays the transactional outbox to consumers as a change feed. Every node polls the outbox, but only
+ * the node holding the lock on the feed relay row relays it: it gives the committed rows that have none
+ * their position in the feed, which is the offset of the change, and commits them together. Positions
+ * are therefore committed in order, so every node serves the changes up to the highest committed
+ * position, and a transaction that commits late is relayed after the changes committed before it
+ * instead of being skipped. Live subscribers receive the new batch without further queries, while
+ * subscribers resuming from an older offset catch up from the outbox a few batches per poll. Changes
+ * are sent to every subscriber from its own virtual thread, so a slow client does not hold up the
+ * relay or the other subscribers.
+ * <p>
+ * When sharding is enabled every shard writes its own outbox, in the transaction of the change. The
+ * relaying node first copies the rows of the other shards to the outbox of the first shard, where
+ * they are given their position, and deletes them from their shard once the copies commit. A failure
+ * between both steps forwards the rows again, so across shards the feed delivers changes at least once.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserChangeFeedServiceImpl implements UserChangeFeedService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int CATCH_UP_BATCHES_PER_POLL = 10;
+    private static final int RELAY_ID = 1;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final FeedRelayRepository feedRelayRepository;
+    private final ShardRouter shardRouter;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    @Value("${feed.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${feed.retention-hours:168}")
+    private long retentionHours;
+
+    private volatile long highWater;
+    private volatile Batch latest = new Batch(0L, 0L, List.of());
+
+    @PostConstruct
+    void init() {
+        highWater = outboxEventRepository.findMaxPosition().orElse(0L);
+        latest = new Batch(highWater, highWater, List.of());
+        try {
+            shardRouter.inTransaction(0, false, () -> feedRelayRepository.existsById(RELAY_ID)
+                    ? null : feedRelayRepository.save(new FeedRelay(RELAY_ID, highWater)));
+        } catch (DataIntegrityViolationException e) {
+            // created by another node starting at the same time
+        }
+    }
+
+    /**
+     * Retrieves the changes following the given offset, oldest first.
+     *
+     * @param after the offset of the last change already consumed, or null to start from the beginning
+     * @param limit the maximum number of changes to return
+     * @return the changes with an offset greater than {@code after}, up to the relayed high-water mark
+     */
+    @Override
+    public List<OutboxEvent> getChanges(Long after, int limit) {
+        return outboxEventRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc(
+                after == null ? 0L : after, highWater, Limit.of(limit));
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of changes. Every event carries its offset as the event id, so a
+     * reconnecting client resumes through the standard {@code Last-Event-ID} header.
+     *
+     * @param after the offset of the last change already consumed, or null to receive only new changes
+     * @return the emitter streaming the changes
+     */
+    @Override
+    public SseEmitter subscribe(Long after) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(sseTimeoutMs), after == null ? highWater : after);
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        return subscriber.emitter;
+    }
+
+    /**
+     * Relays the outbox when no other node holds the relay lock, reads the changes committed since the
+     * last poll, advances the high-water mark and wakes the subscribers behind it.
+     */
+    @Scheduled(fixedDelayString = "${feed.poll-interval-ms:200}")
+    public synchronized void relay() {
+        shardRouter.inTransaction(0, false, () -> {
+            feedRelayRepository.claim(RELAY_ID).ifPresent(this::sequence);
+            return null;
+        });
+
+        long previous = highWater;
+        List<OutboxEvent> fresh = advance();
+        latest = new Batch(previous, highWater, fresh);
+
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.cursor < highWater) wake(subscriber);
+        }
+    }
+
+    /**
+     * Deletes the outbox rows older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${feed.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        outboxEventRepository.deleteOccurredBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    /**
+     * Gives the outbox rows without a position the next positions, in id order, within the transaction
+     * holding the relay lock.
+     */
+    private void sequence(FeedRelay feedRelay) {
+        if (shardRouter.isSharded()) forwardShards();
+
+        long position = feedRelay.getLastPosition();
+        List<OutboxEvent> pending;
+        do {
+            pending = outboxEventRepository.findByPositionIsNullOrderByIdAsc(Limit.of(BATCH_SIZE));
+            for (OutboxEvent event : pending) {
+                event.setPosition(++position);
+            }
+        } while (pending.size() == BATCH_SIZE);
+        feedRelay.setLastPosition(position);
+    }
+
+    private void forwardShards() {
+        for (int shard = 1; shard < shardRouter.shardCount(); shard++) {
+            int source = shard;
+            long after = 0L;
+            List<OutboxEvent> batch;
+            do {
+                long from = after;
+                batch = shardRouter.inTransaction(source, true,
+                        () -> outboxEventRepository.findByIdGreaterThanOrderByIdAsc(from, Limit.of(BATCH_SIZE)));
+                if (batch.isEmpty()) break;
+
+                outboxEventRepository.saveAll(batch.stream()
+                        .map(event -> OutboxEvent.builder()
+                                .type(event.getType())
+                                .userId(event.getUserId())
+                                .email(event.getEmail())
+                                .occurredAt(event.getOccurredAt())
+                                .build())
+                        .toList());
+                List<OutboxEvent> forwarded = batch;
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        shardRouter.inTransaction(source, false, () -> {
+                            outboxEventRepository.deleteAllInBatch(forwarded);
+                            return null;
+                        });
+                    }
+                });
+                after = batch.get(batch.size() - 1).getId();
+            } while (batch.size() == BATCH_SIZE);
+        }
+    }
+
+    private List<OutboxEvent> advance() {
+        List<OutboxEvent> fresh = new ArrayList<>();
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxEventRepository.findByPositionGreaterThanOrderByPositionAsc(highWater, Limit.of(BATCH_SIZE));
+            if (batch.isEmpty()) break;
+            fresh.addAll(batch);
+            highWater = batch.get(batch.size() - 1).getPosition();
+        } while (batch.size() == BATCH_SIZE);
+        return fresh;
+    }
+
+    /**
+     * Schedules a delivery to the subscriber on its own thread, unless one is already pending.
+     */
+    private void wake(Subscriber subscriber) {
+        if (!subscriber.scheduled.compareAndSet(false, true)) return;
+        try {
+            subscriber.executor.execute(() -> {
+                subscriber.scheduled.set(false);
+                deliver(subscriber);
+            });
+        } catch (RejectedExecutionException e) {
+            // the subscriber is gone
+        }
+    }
+
+    /**
+     * Sends the latest batch to a live subscriber, or catches up a subscriber behind it from the outbox.
+     */
+    private void deliver(Subscriber subscriber) {
+        Batch batch = latest;
+        if (subscriber.cursor >= batch.previous()) {
+            send(subscriber, batch.events());
+            return;
+        }
+        for (int i = 0; i < CATCH_UP_BATCHES_PER_POLL && subscriber.cursor < batch.upTo(); i++) {
+            List<OutboxEvent> events = outboxEventRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc(
+                    subscriber.cursor, batch.upTo(), Limit.of(BATCH_SIZE));
+            if (events.isEmpty() || !send(subscriber, events)) break;
+        }
+    }
+
+    private boolean send(Subscriber subscriber, List<OutboxEvent> events) {
+        try {
+            for (OutboxEvent event : events) {
+                if (event.getPosition() <= subscriber.cursor) continue;
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.getPosition()))
+                        .name(event.getType().name())
+                        .data(event, MediaType.APPLICATION_JSON));
+                subscriber.cursor = event.getPosition();
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.executor.shutdown();
+    }
+
+    /**
+     * The changes read by the last poll: the high-water mark before and after it, and the changes between.
+     */
+    private record Batch(long previous, long upTo, List<OutboxEvent> events) {
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("feed-subscriber").factory());
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long cursor;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.nisum.users.serviceImpl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.dto.ExportFormat;
+import com.nisum.users.service.UserExportService;
+import com.nisum.users.utils.ShardRouter;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.SelectionQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+public class UserExportServiceImpl implements UserExportService {
+
+    private static final String EXPORT_QUERY = "select u.id, u.name, u.email, u.isActive, u.createdAt, u.updatedAt, "
+            + "u.lastLogin, p.number, p.cityCode, p.countryCode from User u left join u.phones p";
+    private static final String CSV_HEADER = "id,name,email,active,createdAt,updatedAt,lastLogin,"
+            + "phoneNumber,phoneCityCode,phoneCountryCode\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+
+    @Value("${export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${export.max-partitions:4}")
+    private int maxPartitions;
+
+    /**
+     * Streams every user, joined with its phones, as gzip-compressed rows into the given output stream.
+     * Rows are read through a forward-only cursor on a stateless session, so memory use does not depend
+     * on the size of the table. Shards are exported one after the other. The output stream is flushed
+     * but not closed.
+     *
+     * @param format the output format of each row
+     * @param partitions the number of id ranges to export in parallel; 1 or less exports sequentially
+     * @param outputStream the stream receiving the compressed export
+     * @throws IOException if writing to the stream fails
+     */
+    @Override
+    public void export(ExportFormat format, int partitions, OutputStream outputStream) throws IOException {
+        if (partitions <= 1) {
+            exportSequential(format, outputStream);
+        } else {
+            exportPartitioned(format, partitions, Channels.newChannel(outputStream));
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * Streams every user, joined with its phones, as gzip-compressed rows into the given file,
+     * replacing its content if it already exists.
+     *
+     * @param format the output format of each row
+     * @param partitions the number of id ranges to export in parallel; 1 or less exports sequentially
+     * @param target the file receiving the compressed export
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void export(ExportFormat format, int partitions, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (partitions <= 1) {
+                exportSequential(format, Channels.newOutputStream(channel));
+            } else {
+                exportPartitioned(format, partitions, channel);
+            }
+        }
+    }
+
+    /**
+     * Writes every shard in turn as its own gzip member of the output stream.
+     *
+     * @param format the output format of each row
+     * @param outputStream the stream receiving the compressed export
+     * @throws IOException if writing fails
+     */
+    private void exportSequential(ExportFormat format, OutputStream outputStream) throws IOException {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            boolean header = shard == 0;
+            ShardRouter.callOnShard(shard, () -> {
+                writePartition(format, null, null, header, outputStream);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Splits the UUID space into equal id ranges, exports each range of each shard concurrently into
+     * its own temporary gzip member and then transfers the members in order to the target channel.
+     * Concatenated gzip members form a single valid gzip stream.
+     *
+     * @param format the output format of each row
+     * @param partitions the requested number of ranges per shard, capped by {@code export.max-partitions}
+     * @param target the channel receiving the compressed export
+     * @throws IOException if a partition cannot be written or transferred
+     */
+    private void exportPartitioned(ExportFormat format, int partitions, WritableByteChannel target) throws IOException {
+        int count = Math.min(partitions, maxPartitions);
+        int shards = shardRouter.shardCount();
+        List<Path> parts = new ArrayList<>(count * shards);
+        try (ExecutorService executor = ContextExecutorService.wrap(Executors.newFixedThreadPool(count),
+                ContextSnapshotFactory.builder().build())) {
+            List<Future<?>> futures = new ArrayList<>(count * shards);
+            for (int shard = 0; shard < shards; shard++) {
+                for (int i = 0; i < count; i++) {
+                    Path part = Files.createTempFile("users-export-" + shard + "-" + i + "-", "." + format.getExtension());
+                    parts.add(part);
+                    int source = shard;
+                    UUID lower = i == 0 ? null : partitionBound(i, count);
+                    UUID upper = i == count - 1 ? null : partitionBound(i + 1, count);
+                    boolean header = shard == 0 && i == 0;
+                    futures.add(executor.submit(() -> ShardRouter.callOnShard(source, () -> {
+                        try (OutputStream out = Files.newOutputStream(part)) {
+                            writePartition(format, lower, upper, header, out);
+                        }
+                        return null;
+                    })));
+                }
+            }
+            for (Future<?> future : futures) {
+                await(future);
+            }
+            for (Path part : parts) {
+                try (FileChannel source = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = source.size();
+                    while (position < size) {
+                        position += source.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    /**
+     * Writes the users whose id falls in {@code [lower, upper)} as a single gzip member.
+     *
+     * @param format the output format of each row
+     * @param lower the inclusive lower id bound, or null for no bound
+     * @param upper the exclusive upper id bound, or null for no bound
+     * @param header whether the CSV header line must be written
+     * @param outputStream the stream receiving the gzip member; it is finished but not closed
+     * @throws IOException if writing fails
+     */
+    private void writePartition(ExportFormat format, UUID lower, UUID upper, boolean header,
+                                OutputStream outputStream) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RowWriter rowWriter = format == ExportFormat.CSV
+                ? new CsvRowWriter(writer, header)
+                : new NdjsonRowWriter(objectMapper.getFactory().createGenerator(writer));
+
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults<Object[]> rows = partitionQuery(session, lower, upper).scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    rowWriter.write(rows.get());
+                }
+            }
+            transaction.commit();
+        }
+
+        rowWriter.finish();
+        writer.flush();
+        gzip.finish();
+    }
+
+    private SelectionQuery<Object[]> partitionQuery(StatelessSession session, UUID lower, UUID upper) {
+        List<String> conditions = new ArrayList<>(2);
+        if (lower != null) conditions.add("u.id >= :lower");
+        if (upper != null) conditions.add("u.id < :upper");
+
+        String hql = EXPORT_QUERY
+                + (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions))
+                + " order by u.id";
+        SelectionQuery<Object[]> query = session.createSelectionQuery(hql, Object[].class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+        if (lower != null) query.setParameter("lower", lower);
+        if (upper != null) query.setParameter("upper", upper);
+        return query;
+    }
+
+    private static UUID partitionBound(int index, int count) {
+        long high = BigInteger.ONE.shiftLeft(64)
+                .multiply(BigInteger.valueOf(index))
+                .divide(BigInteger.valueOf(count))
+                .longValue();
+        return new UUID(high, 0L);
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            throw new IllegalStateException("Export partition failed", e.getCause());
+        }
+    }
+
+    private interface RowWriter {
+
+        void write(Object[] row) throws IOException;
+        void finish() throws IOException;
+    }
+
+    /**
+     * Writes one CSV line per user and phone pair; users without phones get empty phone columns.
+     */
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvRowWriter(Writer writer, boolean header) throws IOException {
+            this.writer = writer;
+            if (header) writer.write(CSV_HEADER);
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) writer.write(',');
+                writeField(row[i]);
+            }
+            writer.write('\n');
+        }
+
+        private void writeField(Object value) throws IOException {
+            if (value == null) return;
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    /**
+     * Writes one JSON object per user. Rows arrive ordered by id, so the phones of a user are
+     * consecutive and only the user currently being written is held open.
+     */
+    private static final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private Object currentId;
+
+        private NdjsonRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            if (!row[0].equals(currentId)) {
+                endUser();
+                currentId = row[0];
+                generator.writeStartObject();
+                generator.writeStringField("id", row[0].toString());
+                generator.writeStringField("name", (String) row[1]);
+                generator.writeStringField("email", (String) row[2]);
+                generator.writeBooleanField("active", (Boolean) row[3]);
+                writeTimestamp("createdAt", row[4]);
+                writeTimestamp("updatedAt", row[5]);
+                writeTimestamp("lastLogin", row[6]);
+                generator.writeArrayFieldStart("phones");
+            }
+            if (row[7] != null) {
+                generator.writeStartObject();
+                generator.writeStringField("number", (String) row[7]);
+                generator.writeStringField("cityCode", (String) row[8]);
+                generator.writeStringField("countryCode", (String) row[9]);
+                generator.writeEndObject();
+            }
+        }
+
+        private void writeTimestamp(String field, Object value) throws IOException {
+            generator.writeStringField(field, value == null ? null : value.toString());
+        }
+
+        private void endUser() throws IOException {
+            if (currentId == null) return;
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            endUser();
+            generator.flush();
+        }
+    }
+}
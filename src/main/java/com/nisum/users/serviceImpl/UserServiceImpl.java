@@ -1,47 +1,102 @@
 package com.nisum.users.serviceImpl;
 
 import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.dto.InvalidationMessage;
+import com.nisum.users.dto.PhoneDTO;
 import com.nisum.users.dto.UserLoginDTO;
+import com.nisum.users.dto.UserUpdateDTO;
+import com.nisum.users.entities.OutboxEvent;
+import com.nisum.users.entities.OutboxEventType;
 import com.nisum.users.entities.Phone;
 import com.nisum.users.entities.User;
 import com.nisum.users.exceptions.EmailAlreadyExistsException;
 import com.nisum.users.exceptions.NotFoundException;
-import com.nisum.users.repositories.PhoneRepository;
+import com.nisum.users.repositories.EmailClaimRepository;
+import com.nisum.users.repositories.OutboxEventRepository;
+import com.nisum.users.repositories.ShardedUserRepository;
 import com.nisum.users.repositories.UserRepository;
+import com.nisum.users.service.InvalidationBus;
 import com.nisum.users.service.UserService;
+import com.nisum.users.service.UserTieringService;
+import com.nisum.users.utils.EmailIndex;
 import com.nisum.users.utils.JwtTokenUtil;
+import com.nisum.users.utils.ReplicaRouter;
+import com.nisum.users.utils.ShardRouter;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.hibernate.Hibernate;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Observed(name = "users.service")
 public class UserServiceImpl implements UserService {
 
+    private static final NotFoundException USER_NOT_FOUND = new NotFoundException("User not found");
+    private static final NotFoundException INVALID_CREDENTIALS = new NotFoundException("Invalid email or password");
+    private static final EmailAlreadyExistsException EMAIL_ALREADY_EXISTS = new EmailAlreadyExistsException();
+    private static final String EMAIL_CONSTRAINT = "uk_app_user_email";
+
     private final UserRepository userRepository;
-    private final PhoneRepository phoneRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final ShardedUserRepository shardedUserRepository;
+    private final ShardRouter shardRouter;
+    private final ReplicaRouter replicaRouter;
+    private final OutboxEventRepository outboxEventRepository;
+    private final EmailClaimRepository emailClaimRepository;
+    private final PasswordEncoder passwordEncoder;
     private final JwtTokenUtil jwtTokenUtil;
+    private final EmailIndex emailIndex;
+    private final InvalidationBus invalidationBus;
+    private final UserTieringService userTieringService;
 
     /**
-     * Retrieves a list of all users from the user repository.
+     * Retrieves a list of all users, gathered from every shard. The list is read from a replica unless
+     * the authenticated user wrote recently.
      *
      * @return a list containing all User entities present in the system
      */
     @Override
     @Transactional(readOnly = true)
     public List<User> getUsers() {
-        return userRepository.findAll();
+        replicaRouter.readYourWrites(null);
+        return shardedUserRepository.findAll();
+    }
+
+    /**
+     * Retrieves a page of users ordered by id, merged from every shard.
+     *
+     * @param after the id of the last user of the previous page, or null for the first page
+     * @param limit the maximum number of users to return
+     * @return the users following {@code after}, ordered by id
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> getUsers(UUID after, int limit) {
+        replicaRouter.readYourWrites(null);
+        return shardedUserRepository.findPage(after, limit);
     }
 
     /**
-     * Retrieves a user by their unique identifier.
+     * Retrieves a user by their unique identifier from the shard encoded in the identifier. The user is
+     * read from a replica unless it, or the authenticated user, was written recently. A user missing from
+     * the users table is looked up in the archive, and returned detached.
      *
      * @param id the UUID of the user to be retrieved
      * @return the User object associated with the specified UUID
@@ -50,13 +105,24 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional(readOnly = true)
     public User getUserById(UUID id) {
-        return userRepository.findById(id).orElseThrow(() -> new NotFoundException("User not found"));
+        shardRouter.bind(shardRouter.shardOf(id));
+        replicaRouter.readYourWrites(id.toString());
+        User user = userRepository.findById(id)
+                .or(() -> userTieringService.findArchivedById(id))
+                .orElseThrow(() -> USER_NOT_FOUND);
+        Hibernate.initialize(user.getPhones());
+        return user;
     }
 
 
     /**
      * Creates a new user in the system using the provided UserCreateDTO. This method verifies if
      * the email is already taken, encodes the user's password, and generates a JWT token for the user.
+     * The database check for an existing email, which covers archived users too, is skipped when the
+     * email index reports a definite miss; a concurrent insert of the same email is still rejected by
+     * email claim. The user is stored on the home shard of its email, and its phones are
+     * cascaded from it in a single JDBC batch. Once the transaction commits, the other nodes are
+     * notified of the new user through the invalidation bus.
      *
      * @param userCreateDTO the data transfer object containing user information for creation
      * @return the newly created User entity
@@ -65,32 +131,39 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public User createUser(UserCreateDTO userCreateDTO) {
-        if (userRepository.findByEmail(userCreateDTO.getEmail()).isPresent())
-            throw new EmailAlreadyExistsException();
-
-        List<Phone> phones = userCreateDTO.getPhones().stream().map((phoneDTO) -> Phone.builder()
-                        .number(phoneDTO.getNumber())
-                        .cityCode(phoneDTO.getCitycode())
-                        .countryCode(phoneDTO.getCountrycode())
-                        .build())
-                        .collect(Collectors.toList());
-
-        phoneRepository.saveAll(phones);
+        shardRouter.bind(shardRouter.shardOf(userCreateDTO.getEmail()));
+        if (emailTaken(userCreateDTO.getEmail()))
+            throw EMAIL_ALREADY_EXISTS;
 
         User user = User.builder()
                 .name(userCreateDTO.getName())
                 .email(userCreateDTO.getEmail())
                 .password(passwordEncoder.encode(userCreateDTO.getPassword()))
-                .phones(phones)
+                .phones(new LinkedHashSet<>())
                 .lastLogin(LocalDateTime.now())
                 .isActive(true)
                 .token(jwtTokenUtil.generateToken(userCreateDTO.getEmail()))
                 .build();
-        return userRepository.save(user);
+        user.getPhones().addAll(toPhones(userCreateDTO.getPhones(), user));
+        User createdUser = saveAndFlush(user);
+        claimEmail(createdUser.getEmail(), createdUser.getId(), shardRouter.shardOf(createdUser.getEmail()));
+        emailIndex.add(createdUser.getEmail());
+        replicaRouter.recordWrite(createdUser.getId().toString(), createdUser.getEmail());
+        recordChange(OutboxEventType.USER_CREATED, createdUser);
+        invalidationBus.publish(InvalidationMessage.user(createdUser));
+        return createdUser;
     }
 
     /**
      * Authenticates a user using their email and password.
+     * <p>
+     * If the stored hash is outdated, such as one produced with a lower work factor, the password is
+     * rehashed with the current encoder after a successful match. Since the token changes, the other
+     * nodes are notified through the invalidation bus once the transaction commits.
+     * <p>
+     * The user is looked up on the home shard of the email. A user whose email changed since it was
+     * created lives on another shard, and is authenticated in a transaction bound to that shard. An
+     * archived user is moved back to the users table first; a wrong password rolls the move back.
      *
      * @param userLoginDTO the data transfer object containing the user's login credentials, including email and password
      * @return the authenticated User with an updated token and last login time
@@ -99,16 +172,244 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public User login(UserLoginDTO userLoginDTO) {
-        User user = userRepository.findByEmail(userLoginDTO.getEmail())
-                .orElseThrow(() -> new NotFoundException("Invalid email or password"));
+        int home = shardRouter.shardOf(userLoginDTO.getEmail());
+        shardRouter.bind(home);
+        Optional<User> user = userRepository.findByEmail(userLoginDTO.getEmail());
+        if (user.isPresent())
+            return authenticate(user.get(), userLoginDTO);
+
+        if (!emailIndex.mightContain(userLoginDTO.getEmail()))
+            throw INVALID_CREDENTIALS;
+
+        OptionalInt shard = shardedUserRepository.findShardByEmail(userLoginDTO.getEmail(), home);
+        if (shard.isPresent())
+            return shardRouter.inTransaction(shard.getAsInt(), false, () -> authenticate(
+                    userRepository.findByEmail(userLoginDTO.getEmail())
+                            .orElseThrow(() -> INVALID_CREDENTIALS),
+                    userLoginDTO));
+
+        OptionalInt archived = userTieringService.findArchivedShardByEmail(userLoginDTO.getEmail());
+        if (archived.isEmpty())
+            throw INVALID_CREDENTIALS;
+        if (archived.getAsInt() == home)
+            return authenticate(restoreByEmail(userLoginDTO.getEmail()), userLoginDTO);
+        return shardRouter.inTransaction(archived.getAsInt(), false, () -> authenticate(
+                restoreByEmail(userLoginDTO.getEmail()), userLoginDTO));
+    }
+
+    private User restoreByEmail(String email) {
+        return userTieringService.restoreByEmail(email).orElseThrow(() -> INVALID_CREDENTIALS);
+    }
 
+    private User authenticate(User user, UserLoginDTO userLoginDTO) {
         if (passwordEncoder.matches(userLoginDTO.getPassword(), user.getPassword())) {
+            if (passwordEncoder.upgradeEncoding(user.getPassword()))
+                user.setPassword(passwordEncoder.encode(userLoginDTO.getPassword()));
+
             String token = jwtTokenUtil.generateToken(user.getEmail());
             user.setToken(token);
             user.setLastLogin(LocalDateTime.now());
+            replicaRouter.recordWrite(user.getId().toString(), user.getEmail());
+            recordChange(OutboxEventType.USER_LOGGED_IN, user);
+            invalidationBus.publish(InvalidationMessage.user(user));
+            Hibernate.initialize(user.getPhones());
             return userRepository.save(user);
         } else {
-            throw new NotFoundException("Invalid email or password");
+            throw INVALID_CREDENTIALS;
+        }
+    }
+
+    /**
+     * Applies a partial update to an existing user. Only the fields present in the UserUpdateDTO are
+     * changed, phones are added and removed individually through the cascade from the user, and the
+     * entity is dynamically updated so that only the modified columns are written. Concurrent
+     * modifications are detected through the user's version. The other nodes are notified of the
+     * change, and of the previous email when it changes, through the invalidation bus. The user stays
+     * on the shard it was created on when its email changes; the new email is claimed on its home shard
+     * and the previous one released once the change commits. An archived user is moved back to the
+     * users table first.
+     *
+     * @param id the UUID of the user to be updated
+     * @param userUpdateDTO the data transfer object containing the fields to change
+     * @return the updated User entity
+     * @throws NotFoundException if no user is found with the given UUID
+     * @throws EmailAlreadyExistsException if the new email is already used by another user
+     * @throws ObjectOptimisticLockingFailureException if the supplied version does not match the stored one
+     */
+    @Override
+    @Transactional
+    public User updateUser(UUID id, UserUpdateDTO userUpdateDTO) {
+        int shard = shardRouter.shardOf(id);
+        shardRouter.bind(shard);
+        User user = userRepository.findById(id)
+                .or(() -> userTieringService.restore(id))
+                .orElseThrow(() -> USER_NOT_FOUND);
+
+        if (userUpdateDTO.getVersion() != null && !userUpdateDTO.getVersion().equals(user.getVersion()))
+            throw new ObjectOptimisticLockingFailureException(User.class, id);
+
+        if (userUpdateDTO.getName() != null)
+            user.setName(userUpdateDTO.getName());
+
+        if (userUpdateDTO.getEmail() != null && !userUpdateDTO.getEmail().equals(user.getEmail())) {
+            invalidationBus.publish(InvalidationMessage.user(user));
+            if (emailTaken(userUpdateDTO.getEmail()))
+                throw EMAIL_ALREADY_EXISTS;
+            claimEmail(userUpdateDTO.getEmail(), id, shard);
+            releaseEmail(user.getEmail(), id, shard);
+            user.setEmail(userUpdateDTO.getEmail());
+            user.setToken(jwtTokenUtil.generateToken(userUpdateDTO.getEmail()));
+        }
+
+        if (userUpdateDTO.getPassword() != null)
+            user.setPassword(passwordEncoder.encode(userUpdateDTO.getPassword()));
+
+        if (userUpdateDTO.getRemovePhoneIds() != null && !userUpdateDTO.getRemovePhoneIds().isEmpty()) {
+            Set<UUID> removePhoneIds = userUpdateDTO.getRemovePhoneIds();
+            List<Phone> removed = user.getPhones().stream()
+                    .filter(phone -> removePhoneIds.contains(phone.getId()))
+                    .collect(Collectors.toList());
+            removed.forEach(user.getPhones()::remove);
+        }
+
+        if (userUpdateDTO.getAddPhones() != null && !userUpdateDTO.getAddPhones().isEmpty()) {
+            user.getPhones().addAll(toPhones(userUpdateDTO.getAddPhones(), user));
+        }
+
+        User updatedUser = saveAndFlush(user);
+        emailIndex.add(updatedUser.getEmail());
+        replicaRouter.recordWrite(updatedUser.getId().toString(), updatedUser.getEmail());
+        recordChange(OutboxEventType.USER_UPDATED, updatedUser);
+        invalidationBus.publish(InvalidationMessage.user(updatedUser));
+        Hibernate.initialize(updatedUser.getPhones());
+        return updatedUser;
+    }
+
+    /**
+     * Writes a change to the transactional outbox, in the same transaction as the change itself, so the
+     * change feed never misses a committed change nor exposes a rolled back one.
+     *
+     * @param type the kind of change
+     * @param user the changed user
+     */
+    private void recordChange(OutboxEventType type, User user) {
+        outboxEventRepository.save(OutboxEvent.builder()
+                .type(type)
+                .userId(user.getId())
+                .email(user.getEmail())
+                .occurredAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Checks whether an email is used by a user, hot or archived, on any shard. The email index answers
+     * a definite miss without querying the database.
+     *
+     * @param email the email to check
+     * @return true if a user already has the email
+     */
+    private boolean emailTaken(String email) {
+        return emailIndex.mightContain(email)
+                && (shardedUserRepository.findByEmail(email).isPresent()
+                || userTieringService.findArchivedShardByEmail(email).isPresent());
+    }
+
+    /**
+     * Claims an email for a user on the home shard of the email, so that two users stored on different
+     * shards cannot both commit it. On the shard of the current transaction the claim is part of it; on
+     * another shard it commits in a transaction of its own, and is released if the current one does not
+     * commit.
+     *
+     * @param email the email to claim
+     * @param userId the id of the user taking the email
+     * @param shard the shard of the current transaction
+     * @throws EmailAlreadyExistsException if another user holds the email
+     */
+    private void claimEmail(String email, UUID userId, int shard) {
+        int home = shardRouter.shardOf(email);
+        try {
+            if (home == shard) {
+                emailClaimRepository.insert(email, userId);
+                return;
+            }
+            shardRouter.inTransaction(home, false, () -> {
+                emailClaimRepository.insert(email, userId);
+                return null;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw EMAIL_ALREADY_EXISTS;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED)
+                    shardRouter.inTransaction(home, false, () -> emailClaimRepository.release(email, userId));
+            }
+        });
+    }
+
+    /**
+     * Releases the claim of a user on an email it no longer holds: in the current transaction on its
+     * shard, or once the current transaction commits on another shard.
+     *
+     * @param email the email to release
+     * @param userId the id of the user that held the email
+     * @param shard the shard of the current transaction
+     */
+    private void releaseEmail(String email, UUID userId, int shard) {
+        int home = shardRouter.shardOf(email);
+        if (home == shard) {
+            emailClaimRepository.release(email, userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                shardRouter.inTransaction(home, false, () -> emailClaimRepository.release(email, userId));
+            }
+        });
+    }
+
+    /**
+     * Saves and flushes the user so that a unique constraint violation on the email, caused by a
+     * concurrent insert that passed the same duplicate check, surfaces as an EmailAlreadyExistsException.
+     * Violations of any other constraint are rethrown.
+     *
+     * @param user the user to be saved
+     * @return the saved User entity
+     * @throws EmailAlreadyExistsException if the email is already used by another user
+     */
+    private User saveAndFlush(User user) {
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (violates(e, EMAIL_CONSTRAINT))
+                throw EMAIL_ALREADY_EXISTS;
+            throw e;
         }
     }
+
+    /**
+     * Tells whether a data integrity violation was raised by the given constraint. The database reports
+     * the name of the index backing the constraint, which starts with the constraint name.
+     *
+     * @param e the violation
+     * @param constraint the constraint name, in lower case
+     * @return true if the violated constraint is known and matches
+     */
+    private static boolean violates(DataIntegrityViolationException e, String constraint) {
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(constraint);
+    }
+
+    private List<Phone> toPhones(List<PhoneDTO> phoneDTOs, User user) {
+        return phoneDTOs.stream().map((phoneDTO) -> Phone.builder()
+                        .number(phoneDTO.getNumber())
+                        .cityCode(phoneDTO.getCitycode())
+                        .countryCode(phoneDTO.getCountrycode())
+                        .user(user)
+                        .build())
+                        .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,208 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.entities.ArchivedUser;
+import com.nisum.users.entities.User;
+import com.nisum.users.repositories.ArchivedUserRepository;
+import com.nisum.users.repositories.UserRepository;
+import com.nisum.users.service.UserTieringService;
+import com.nisum.users.utils.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the users table, and the indexes of the hot lookups by email, limited to the active users. A
+ * scheduled job moves the users whose last login is older than {@code tiering.inactive-days}, and their
+ * phones, to the archive tables of their shard, in batches of {@code tiering.batch-size} users, each in
+ * its own transaction and followed by a pause, so the job never holds many locks nor saturates the
+ * database. Users that never logged in are left in place.
+ * <p>
+ * Lookups by id or email that miss the hot table fall back to the archive, and a login or an update moves
+ * the user back. Archived emails stay in the email index, so the duplicate check still finds them. The
+ * {@code users.tier.size} gauges report the size of each tier as of the last run, and the
+ * {@code users.tier.fallback} counters the archive lookups that found a user or not.
+ */
+@Slf4j
+@Service
+public class UserTieringServiceImpl implements UserTieringService {
+
+    private final ArchivedUserRepository archivedUserRepository;
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final AtomicLong hotSize = new AtomicLong();
+    private final AtomicLong archiveSize = new AtomicLong();
+    private final Counter fallbackHits;
+    private final Counter fallbackMisses;
+    private final Counter archived;
+    private final Counter restored;
+
+    @Value("${tiering.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tiering.inactive-days:180}")
+    private int inactiveDays;
+
+    @Value("${tiering.batch-size:500}")
+    private int batchSize;
+
+    @Value("${tiering.batch-pause-ms:100}")
+    private long batchPauseMs;
+
+    @Value("${tiering.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    public UserTieringServiceImpl(ArchivedUserRepository archivedUserRepository,
+                                  UserRepository userRepository,
+                                  ShardRouter shardRouter,
+                                  MeterRegistry meterRegistry) {
+        this.archivedUserRepository = archivedUserRepository;
+        this.userRepository = userRepository;
+        this.shardRouter = shardRouter;
+        Gauge.builder("users.tier.size", hotSize, AtomicLong::get).tag("tier", "hot").register(meterRegistry);
+        Gauge.builder("users.tier.size", archiveSize, AtomicLong::get).tag("tier", "archive").register(meterRegistry);
+        this.fallbackHits = Counter.builder("users.tier.fallback").tag("result", "hit").register(meterRegistry);
+        this.fallbackMisses = Counter.builder("users.tier.fallback").tag("result", "miss").register(meterRegistry);
+        this.archived = Counter.builder("users.tier.moved").tag("direction", "archived").register(meterRegistry);
+        this.restored = Counter.builder("users.tier.moved").tag("direction", "restored").register(meterRegistry);
+    }
+
+    /**
+     * Runs the tiering job and refreshes the tier sizes.
+     */
+    @Scheduled(fixedDelayString = "${tiering.interval-ms:3600000}", initialDelayString = "${tiering.initial-delay-ms:60000}")
+    public void run() {
+        if (!enabled) return;
+
+        long start = System.nanoTime();
+        int moved = archiveInactiveUsers();
+        refreshSizes();
+        log.info("Archived {} inactive users in {} ms; {} hot, {} archived", moved,
+                (System.nanoTime() - start) / 1_000_000, hotSize.get(), archiveSize.get());
+    }
+
+    @Override
+    public int archiveInactiveUsers() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusDays(inactiveDays);
+        int moved = 0;
+        int batches = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            int count;
+            do {
+                if (batches++ >= maxBatchesPerRun) return moved;
+                count = shardRouter.inTransaction(shard, false, () -> archiveBatch(cutoff, now));
+                moved += count;
+                if (!pause()) return moved;
+            } while (count == batchSize);
+        }
+        return moved;
+    }
+
+    /**
+     * Moves one batch of inactive users of the current shard to the archive. The selected rows stay
+     * locked until the batch commits, so a concurrent login or update either commits first, and the user
+     * is no longer selected, or waits and then finds the user archived. The hot rows are only deleted if
+     * they still match their archived copy; otherwise the batch is rolled back rather than losing a write.
+     *
+     * @return the number of users selected, so the caller knows if more remain
+     * @throws IllegalStateException if a selected user changed before it was deleted
+     */
+    private int archiveBatch(LocalDateTime cutoff, LocalDateTime now) {
+        List<UUID> candidates = archivedUserRepository.findInactiveUserIds(cutoff, Limit.of(batchSize));
+        if (candidates.isEmpty()) return 0;
+
+        archivedUserRepository.copyUsersToArchive(candidates, cutoff, now);
+        List<UUID> ids = archivedUserRepository.findIdsByIdIn(candidates);
+        if (!ids.isEmpty()) {
+            archivedUserRepository.copyPhonesToArchive(ids);
+            archivedUserRepository.deleteHotPhones(ids);
+            int deleted = archivedUserRepository.deleteHotUsers(ids, cutoff);
+            if (deleted != ids.size())
+                throw new IllegalStateException("Users changed while being archived, rolling the batch back");
+            archived.increment(ids.size());
+        }
+        return candidates.size();
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void refreshSizes() {
+        hotSize.set(shardRouter.scatter(shard -> userRepository.count()).stream().mapToLong(Long::longValue).sum());
+        archiveSize.set(shardRouter.scatter(shard -> archivedUserRepository.count()).stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Override
+    public Optional<User> findArchivedById(UUID id) {
+        return count(archivedUserRepository.findWithPhonesById(id).map(ArchivedUser::toUser));
+    }
+
+    @Override
+    public Optional<User> findArchivedByEmail(String email) {
+        OptionalInt shard = findArchivedShardByEmail(email);
+        if (shard.isEmpty()) return Optional.empty();
+        return shardRouter.onShard(shard.getAsInt(), () -> archivedUserRepository.findWithPhonesByEmail(email)
+                .map(ArchivedUser::toUser));
+    }
+
+    @Override
+    public OptionalInt findArchivedShardByEmail(String email) {
+        int home = shardRouter.shardOf(email);
+        if (shardRouter.onShard(home, () -> archivedUserRepository.findIdByEmail(email).isPresent())) {
+            fallbackHits.increment();
+            return OptionalInt.of(home);
+        }
+        List<Boolean> found = shardRouter.isSharded()
+                ? shardRouter.scatter(shard -> shard != home && archivedUserRepository.findIdByEmail(email).isPresent())
+                : List.of();
+        OptionalInt shard = IntStream.range(0, found.size()).filter(found::get).findFirst();
+        (shard.isPresent() ? fallbackHits : fallbackMisses).increment();
+        return shard;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<User> restore(UUID id) {
+        if (archivedUserRepository.lockById(id).isEmpty()) return userRepository.findById(id);
+        archivedUserRepository.copyUserToHot(id);
+
+        archivedUserRepository.copyPhonesToHot(id);
+        archivedUserRepository.deleteArchivedPhones(id);
+        archivedUserRepository.deleteArchivedUser(id);
+        restored.increment();
+        return userRepository.findById(id);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<User> restoreByEmail(String email) {
+        return archivedUserRepository.findIdByEmail(email).flatMap(this::restore);
+    }
+
+    private Optional<User> count(Optional<User> user) {
+        (user.isPresent() ? fallbackHits : fallbackMisses).increment();
+        return user;
+    }
+}
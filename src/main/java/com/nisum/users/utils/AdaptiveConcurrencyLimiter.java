@@ -0,0 +1,95 @@
+package com.nisum.users.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit adapted to the observed latency with a gradient algorithm. Two moving averages of
+ * the request latency are kept: a short one following the current conditions and a long one
+ * approximating the latency without queueing. Their ratio is the gradient: while the short average
+ * stays within the tolerance of the long one the limit grows by its square root, and once requests
+ * start to queue the short average rises and the limit shrinks in proportion, down to half per
+ * update. Updates are smoothed, and skipped while fewer than half of the permits are in use, since
+ * the latency of an idle limiter says nothing about the capacity.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double TOLERANCE = 1.5;
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Takes a permit if fewer requests than the limit are in flight.
+     *
+     * @return true if the request may proceed, in which case {@link #release(long)} must be called
+     *         once it completes
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Returns a permit and updates the limit with the latency of the request.
+     *
+     * @param rttNanos the time the request held the permit
+     */
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        update(rttNanos, current);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtCompletion) {
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+        }
+        shortRtt += (rttNanos - shortRtt) * SHORT_WEIGHT;
+        longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+        // After a sustained slowdown ends, pull the long average down faster than its window would.
+        if (longRtt > shortRtt * 2) longRtt *= 0.95;
+
+        if (inFlightAtCompletion < estimatedLimit / 2) return;
+
+        double gradient = Math.clamp(TOLERANCE * longRtt / shortRtt, 0.5, 1.0);
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.clamp(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING, minLimit, maxLimit);
+        limit = (int) estimatedLimit;
+    }
+}
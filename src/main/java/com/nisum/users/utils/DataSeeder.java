@@ -1,36 +1,44 @@
 package com.nisum.users.utils;
 
-import com.nisum.users.entities.User;
-import com.nisum.users.repositories.UserRepository;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.exceptions.EmailAlreadyExistsException;
+import com.nisum.users.repositories.ShardedUserRepository;
+import com.nisum.users.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 public class DataSeeder implements CommandLineRunner {
 
-    private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final UserService userService;
+    private final ShardedUserRepository shardedUserRepository;
 
     /**
      * Checks the existence of an admin user by email and creates a new admin user
-     * with predefined credentials and properties if not present in the system storage.
+     * with predefined credentials and properties if not present in the system storage. The admin user
+     * is created like any other user, so it is stored on the home shard of its email and claims the
+     * email there; a node that loses the race against another one seeding it at the same time skips it.
      *
      * @param args command line arguments passed to the execution context; not used in this implementation
      */
     @Override
     public void run(String... args) {
 
-        if (userRepository.findByEmail("admin@example.com").isEmpty()) {
-            User admin = User.builder()
-                    .name("Admin")
-                    .email("admin@example.com")
-                    .password(passwordEncoder.encode("Admin123"))
-                    .isActive(true)
-                    .build();
-            userRepository.save(admin);
+        if (shardedUserRepository.findByEmail("admin@example.com").isEmpty()) {
+            UserCreateDTO admin = new UserCreateDTO();
+            admin.setName("Admin");
+            admin.setEmail("admin@example.com");
+            admin.setPassword("Admin123");
+            admin.setPhones(List.of());
+            try {
+                userService.createUser(admin);
+            } catch (EmailAlreadyExistsException e) {
+                // Seeded by another node
+            }
         }
     }
 }
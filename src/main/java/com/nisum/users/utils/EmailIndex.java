@@ -0,0 +1,266 @@
+package com.nisum.users.utils;
+
+import com.nisum.users.dto.InvalidationMessage;
+import com.nisum.users.repositories.ShardedUserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory membership index of the registered emails, stored as 64-bit fingerprints in a primitive
+ * open-addressing hash table. A miss means the email is definitely not stored by this node, so the
+ * duplicate check can skip its database round-trip; a hit may be a fingerprint collision or a stale
+ * entry and must be confirmed against the database. Emails inserted by other nodes are learnt through
+ * the invalidation bus, but may arrive late, which is why the unique constraint on the email column
+ * remains the final guard against duplicates.
+ * <p>
+ * When {@code email-index.snapshot-file} is set, the table is saved to that file periodically and on
+ * shutdown, and the next start loads it and only reads the users updated since the snapshot was taken,
+ * instead of every user. The snapshot watermark is moved back by {@code email-index.snapshot-overlap-ms}
+ * so that emails still in flight when it was taken, in an open transaction or on the invalidation bus,
+ * are read again; adding an email twice is harmless.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class EmailIndex implements CommandLineRunner {
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final long EMPTY = 0L;
+
+    private final ShardedUserRepository shardedUserRepository;
+    private final ReplicaRouter replicaRouter;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Value("${email-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${email-index.snapshot-file:}")
+    private String snapshotFile;
+
+    @Value("${email-index.snapshot-overlap-ms:60000}")
+    private long snapshotOverlapMs;
+
+    @Value("${spring.datasource.url:}|${sharding.urls:}")
+    private String source;
+
+    private long[] table = new long[MIN_CAPACITY];
+    private int size;
+    private volatile boolean loaded;
+
+    /**
+     * Builds the index from the emails stored in the database, streaming them so that only the
+     * fingerprints are kept in memory. The shards are streamed in parallel. The emails are read from the
+     * primary, since a lagging replica would leave out recent emails. When a snapshot of the same database
+     * is available, it is loaded and only the emails updated since its watermark are read.
+     *
+     * @param args command line arguments passed to the execution context; not used in this implementation
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void run(String... args) {
+        if (!enabled) return;
+
+        long start = System.nanoTime();
+        replicaRouter.pinToPrimary();
+        LocalDateTime watermark = restoreSnapshot();
+        if (watermark != null) {
+            int restored = size;
+            shardedUserRepository.forEachEmailUpdatedSince(watermark, this::add);
+            loaded = true;
+            log.info("Email index restored with {} entries and caught up with {} more in {} ms",
+                    restored, size - restored, (System.nanoTime() - start) / 1_000_000);
+            return;
+        }
+
+        long count = shardedUserRepository.count();
+        lock.writeLock().lock();
+        try {
+            table = new long[capacityFor(count)];
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        shardedUserRepository.forEachEmail(this::add);
+        loaded = true;
+        log.info("Email index loaded with {} entries in {} ms", size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Tells whether the email may be registered. Before the index is loaded, or when it is disabled,
+     * every email is reported as possibly present so callers always fall back to the database.
+     *
+     * @param email the email to look up
+     * @return false if the email is definitely not registered, true if it may be
+     */
+    public boolean mightContain(String email) {
+        if (!enabled || !loaded) return true;
+
+        long fingerprint = fingerprint(email);
+        lock.readLock().lock();
+        try {
+            int mask = table.length - 1;
+            for (int slot = (int) fingerprint & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (table[slot] == fingerprint) return true;
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a registered email. Entries are never removed: an email that is no longer registered
+     * only costs a database check.
+     *
+     * @param email the email to add
+     */
+    public void add(String email) {
+        if (!enabled) return;
+
+        long fingerprint = fingerprint(email);
+        lock.writeLock().lock();
+        try {
+            if ((size + 1) * 2L > table.length) resize();
+            insert(fingerprint);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records the email of a user created or changed on any node.
+     *
+     * @param message the invalidation message received from the bus
+     */
+    @EventListener
+    public void onInvalidation(InvalidationMessage message) {
+        if (InvalidationMessage.USER.equals(message.getEntityType()) && message.getEmail() != null) {
+            add(message.getEmail());
+        }
+    }
+
+    /**
+     * Saves the index to the snapshot file, if one is configured. The table is copied under the read
+     * lock and written without holding it, so additions are only blocked for the copy.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${email-index.snapshot-interval-ms:300000}",
+            initialDelayString = "${email-index.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        if (!enabled || !loaded || snapshotFile.isEmpty()) return;
+
+        long start = System.nanoTime();
+        LocalDateTime watermark = LocalDateTime.now().minusNanos(snapshotOverlapMs * 1_000_000);
+        long[] copy;
+        int copySize;
+        lock.readLock().lock();
+        try {
+            copy = table.clone();
+            copySize = size;
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            IndexSnapshot.write(Path.of(snapshotFile), fingerprint(source), watermark, copySize, copy);
+            log.info("Email index snapshot with {} entries written in {} ms", copySize, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Could not write the email index snapshot {}", snapshotFile, e);
+        }
+    }
+
+    /**
+     * Replaces the table with the snapshot, if one of the same database is available.
+     *
+     * @return the watermark from which the users must be read, or null if no snapshot was loaded
+     */
+    LocalDateTime restoreSnapshot() {
+        if (snapshotFile.isEmpty()) return null;
+
+        IndexSnapshot.Contents contents;
+        try {
+            contents = IndexSnapshot.read(Path.of(snapshotFile), fingerprint(source));
+        } catch (IOException e) {
+            log.warn("Could not read the email index snapshot {}", snapshotFile, e);
+            return null;
+        }
+        if (contents == null || contents.table().length < MIN_CAPACITY || Integer.bitCount(contents.table().length) != 1) {
+            log.info("No usable email index snapshot at {}, rebuilding from the database", snapshotFile);
+            return null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            table = contents.table();
+            size = contents.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return contents.watermark();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void insert(long fingerprint) {
+        int mask = table.length - 1;
+        int slot = (int) fingerprint & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == fingerprint) return;
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = fingerprint;
+        size++;
+    }
+
+    private void resize() {
+        long[] previous = table;
+        table = new long[previous.length * 2];
+        size = 0;
+        for (long fingerprint : previous) {
+            if (fingerprint != EMPTY) insert(fingerprint);
+        }
+    }
+
+    /**
+     * Returns a power-of-two capacity keeping the load factor at or below one half.
+     */
+    private static int capacityFor(long entries) {
+        long capacity = Long.highestOneBit(Math.max(entries * 2, MIN_CAPACITY) - 1) << 1;
+        return (int) Math.min(capacity, 1 << 30);
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of the email followed by a MurmurHash3 finalizer, so the low bits
+     * used as the slot index are well mixed. Zero is reserved for empty slots.
+     */
+    static long fingerprint(String email) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < email.length(); i++) {
+            hash ^= email.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1L : hash;
+    }
+}
@@ -0,0 +1,127 @@
+package com.nisum.users.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads and writes snapshots of an in-memory index kept as a table of 64-bit values. The file holds a
+ * fixed header followed by the raw table in little-endian order, and is mapped in memory to be read,
+ * so loading it is a bulk copy rather than a rebuild. The header records the database the index was
+ * built from and a watermark: every row updated before it is in the table, and the rows updated since
+ * must be replayed by the caller. Files are written next to the target and moved over it, so a reader
+ * never sees a partial snapshot.
+ */
+public final class IndexSnapshot {
+
+    private static final int MAGIC = 0x58444945;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int CHUNK_LONGS = 1 << 27;
+
+    private IndexSnapshot() {
+    }
+
+    /**
+     * The contents of a snapshot.
+     *
+     * @param watermark the update time from which rows must be replayed
+     * @param size the number of entries in the table
+     * @param table the table of entries
+     */
+    public record Contents(LocalDateTime watermark, int size, long[] table) {
+    }
+
+    /**
+     * Writes a snapshot, replacing any previous one.
+     *
+     * @param file the snapshot file
+     * @param source a fingerprint of the database the index was built from
+     * @param watermark the update time from which rows must be replayed
+     * @param size the number of entries in the table
+     * @param table the table of entries
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, long source, LocalDateTime watermark, int size, long[] table) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                CRC32C checksum = new CRC32C();
+                for (int offset = 0; offset < table.length; offset += CHUNK_LONGS) {
+                    int count = Math.min(CHUNK_LONGS, table.length - offset);
+                    MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE,
+                            HEADER_BYTES + offset * 8L, count * 8L);
+                    region.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(table, offset, count);
+                    checksum.update(region.rewind());
+                    region.force();
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(source)
+                        .putLong(watermark.toEpochSecond(ZoneOffset.UTC))
+                        .putInt(watermark.getNano())
+                        .putInt(size)
+                        .putInt(table.length)
+                        .putInt((int) checksum.getValue())
+                        .flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a snapshot through a read-only memory mapping of the file.
+     *
+     * @param file the snapshot file
+     * @param source a fingerprint of the database the index is built from
+     * @return the contents, or null if there is no snapshot, or it was built from another database, by
+     *         another version or is damaged
+     * @throws IOException if the file cannot be read
+     */
+    public static Contents read(Path file, long source) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) return null;
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != source) return null;
+            LocalDateTime watermark = LocalDateTime.ofEpochSecond(header.getLong(), header.getInt(), ZoneOffset.UTC);
+            int size = header.getInt();
+            int length = header.getInt();
+            int expectedChecksum = header.getInt();
+            if (length < 0 || size < 0 || size > length || channel.size() != HEADER_BYTES + length * 8L) return null;
+
+            long[] table = new long[length];
+            CRC32C checksum = new CRC32C();
+            for (int offset = 0; offset < length; offset += CHUNK_LONGS) {
+                int count = Math.min(CHUNK_LONGS, length - offset);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + offset * 8L, count * 8L);
+                checksum.update(region);
+                region.rewind().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(table, offset, count);
+            }
+            if ((int) checksum.getValue() != expectedChecksum) return null;
+
+            return new Contents(watermark, size, table);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.nisum.users.utils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The HS256 keys tokens are signed and verified with, identified by the {@code kid} header of the tokens.
+ * <p>
+ * The keys are kept in a PKCS12 keystore at {@code jwt.keystore.file}, so tokens survive restarts and are
+ * accepted by every node reading the same file. Each key id starts with the time from which the key signs
+ * tokens; a rotated key is added {@code jwt.rotation.activation-delay-ms} ahead of that time, so every node
+ * reloads it and can verify its tokens before any is issued. Older keys keep verifying until the tokens
+ * they signed have expired, then are removed. Rotation takes a file lock, so any number of nodes sharing
+ * the file can have it enabled; nodes with their own copy of the file should leave it to one of them and
+ * distribute the file. Without a keystore file, a key is generated for the lifetime of the process.
+ */
+@Slf4j
+@Component
+public class JwtKeyRegistry {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int KEY_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${jwt.keystore.file:}")
+    private String keystoreFile = "";
+
+    @Value("${jwt.keystore.password:changeit}")
+    private String keystorePassword = "changeit";
+
+    @Value("${jwt.rotation.enabled:true}")
+    private boolean rotationEnabled = true;
+
+    @Value("${jwt.rotation.interval-ms:86400000}")
+    private long rotationIntervalMs = 86_400_000;
+
+    @Value("${jwt.rotation.activation-delay-ms:120000}")
+    private long activationDelayMs = 120_000;
+
+    @Value("${jwt.token-lifetime-ms:60000}")
+    private long tokenLifetimeMs = 60_000;
+
+    @Value("${jwt.clock-skew-ms:5000}")
+    private long clockSkewMs = 5_000;
+
+    private volatile KeySet keySet = new KeySet(List.of(), Map.of());
+    private volatile FileTime loadedModifiedTime;
+
+    /**
+     * A signing key.
+     *
+     * @param id the key id, written to the {@code kid} header of the tokens it signs
+     * @param secret the HMAC key
+     * @param activatesAt the epoch millisecond from which the key signs tokens
+     */
+    public record SigningKey(String id, SecretKey secret, long activatesAt) {
+    }
+
+    private record KeySet(List<SigningKey> newestFirst, Map<String, SigningKey> byId) {
+    }
+
+    /**
+     * Creates a registry holding a single key generated for the lifetime of the process.
+     *
+     * @return the registry
+     */
+    public static JwtKeyRegistry ephemeral() {
+        JwtKeyRegistry registry = new JwtKeyRegistry();
+        registry.init();
+        return registry;
+    }
+
+    /**
+     * Loads the keystore, creating it with a first key if it does not exist yet, or generates a key for
+     * this process when no keystore file is configured.
+     */
+    @PostConstruct
+    void init() {
+        if (keystoreFile.isEmpty()) {
+            log.warn("No jwt.keystore.file set: tokens are signed with a key generated for this process only");
+            install(List.of(newKey(System.currentTimeMillis())));
+            return;
+        }
+        try {
+            if (rotationEnabled) {
+                rotate(System.currentTimeMillis());
+            } else {
+                reload();
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot load the JWT keystore " + keystoreFile, e);
+        }
+        if (keySet.newestFirst().isEmpty()) {
+            throw new IllegalStateException("The JWT keystore " + keystoreFile + " holds no key");
+        }
+    }
+
+    /**
+     * Returns the key new tokens are signed with: the newest key already active.
+     *
+     * @return the signing key
+     */
+    public SigningKey signingKey() {
+        return signingKey(System.currentTimeMillis());
+    }
+
+    SigningKey signingKey(long now) {
+        List<SigningKey> keys = keySet.newestFirst();
+        for (SigningKey key : keys) {
+            if (key.activatesAt() <= now) return key;
+        }
+        return keys.get(keys.size() - 1);
+    }
+
+    /**
+     * Looks up the key a token was signed with.
+     *
+     * @param id the {@code kid} header of the token
+     * @return the key, or null if it is unknown or has been retired
+     */
+    public SecretKey verificationKey(String id) {
+        SigningKey key = id == null ? null : keySet.byId().get(id);
+        return key == null ? null : key.secret();
+    }
+
+    /**
+     * Reloads the keystore when another node has changed it.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keystore.reload-interval-ms:30000}",
+            initialDelayString = "${jwt.keystore.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (keystoreFile.isEmpty()) return;
+        try {
+            FileTime modifiedTime = Files.getLastModifiedTime(Path.of(keystoreFile));
+            if (!modifiedTime.equals(loadedModifiedTime)) reload();
+        } catch (IOException | GeneralSecurityException e) {
+            log.warn("Could not reload the JWT keystore {}, keeping {} keys", keystoreFile, keySet.byId().size(), e);
+        }
+    }
+
+    /**
+     * Adds a key once the newest one is due for rotation and removes the keys whose tokens have all expired.
+     */
+    @Scheduled(fixedDelayString = "${jwt.rotation.check-interval-ms:60000}",
+            initialDelayString = "${jwt.rotation.check-interval-ms:60000}")
+    public void rotateIfDue() {
+        if (keystoreFile.isEmpty() || !rotationEnabled) return;
+        try {
+            rotate(System.currentTimeMillis());
+        } catch (IOException | GeneralSecurityException e) {
+            log.warn("Could not rotate the JWT keys in {}", keystoreFile, e);
+        }
+    }
+
+    /**
+     * Rotates the keys as of the given time, holding a lock on the keystore so that nodes sharing it
+     * never rotate at once. The keystore is read again under the lock and only written if it changed.
+     *
+     * @param now the current epoch millisecond
+     */
+    synchronized void rotate(long now) throws IOException, GeneralSecurityException {
+        Path file = Path.of(keystoreFile);
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        try (FileChannel lockChannel = FileChannel.open(parent.resolve(file.getFileName() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            List<SigningKey> keys = Files.exists(file) ? new ArrayList<>(read(file)) : new ArrayList<>();
+            boolean changed = false;
+
+            if (keys.isEmpty()) {
+                keys.add(newKey(now));
+                changed = true;
+            } else if (keys.get(0).activatesAt() + rotationIntervalMs <= now + activationDelayMs) {
+                keys.add(0, newKey(Math.max(now + activationDelayMs, keys.get(0).activatesAt())));
+                changed = true;
+            }
+
+            // Tokens signed by keys older than one active for a whole token lifetime have expired.
+            long expiredBefore = now - tokenLifetimeMs - clockSkewMs;
+            for (int i = 0; i < keys.size() - 1; i++) {
+                if (keys.get(i).activatesAt() <= expiredBefore) {
+                    keys.subList(i + 1, keys.size()).clear();
+                    changed = true;
+                    break;
+                }
+            }
+
+            if (changed) {
+                write(file, keys);
+                log.info("JWT keys rotated: {} keys, signing with {}", keys.size(), keys.get(0).id());
+            }
+            loadedModifiedTime = Files.getLastModifiedTime(file);
+            install(keys);
+        }
+    }
+
+    private synchronized void reload() throws IOException, GeneralSecurityException {
+        Path file = Path.of(keystoreFile);
+        FileTime modifiedTime;
+        List<SigningKey> keys;
+        try {
+            modifiedTime = Files.getLastModifiedTime(file);
+            keys = read(file);
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("No JWT keystore at " + keystoreFile, e);
+        }
+        loadedModifiedTime = modifiedTime;
+        install(keys);
+    }
+
+    private List<SigningKey> read(Path file) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(file)) {
+            keyStore.load(in, keystorePassword.toCharArray());
+        }
+        KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(keystorePassword.toCharArray());
+        List<SigningKey> keys = new ArrayList<>();
+        for (String alias : Collections.list(keyStore.aliases())) {
+            if (keyStore.getEntry(alias, protection) instanceof KeyStore.SecretKeyEntry entry) {
+                SecretKey secret = new SecretKeySpec(entry.getSecretKey().getEncoded(), ALGORITHM);
+                keys.add(new SigningKey(alias, secret, Long.parseLong(alias.substring(0, alias.indexOf('-')))));
+            }
+        }
+        keys.sort(Comparator.comparingLong(SigningKey::activatesAt).reversed());
+        return keys;
+    }
+
+    /**
+     * Writes the keystore next to the target and moves it over it, so that a node reloading it never reads
+     * a partial file. The temporary file is created readable by the owner only.
+     */
+    private void write(Path file, List<SigningKey> keys) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(keystorePassword.toCharArray());
+        for (SigningKey key : keys) {
+            keyStore.setEntry(key.id(), new KeyStore.SecretKeyEntry(key.secret()), protection);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                keyStore.store(out, keystorePassword.toCharArray());
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private SigningKey newKey(long activatesAt) {
+        byte[] secret = new byte[KEY_BYTES];
+        random.nextBytes(secret);
+        byte[] suffix = new byte[4];
+        random.nextBytes(suffix);
+        return new SigningKey(activatesAt + "-" + HexFormat.of().formatHex(suffix),
+                new SecretKeySpec(secret, ALGORITHM), activatesAt);
+    }
+
+    private void install(List<SigningKey> keys) {
+        List<SigningKey> newestFirst = keys.stream()
+                .sorted(Comparator.comparingLong(SigningKey::activatesAt).reversed())
+                .toList();
+        keySet = new KeySet(newestFirst, newestFirst.stream()
+                .collect(Collectors.toUnmodifiableMap(SigningKey::id, Function.identity())));
+    }
+}
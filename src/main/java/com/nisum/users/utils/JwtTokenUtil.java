@@ -1,32 +1,68 @@
 package com.nisum.users.utils;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
 import java.security.Key;
 import java.util.Date;
 
+/**
+ * Issues and verifies the tokens of the users. Tokens are signed with the current key of the
+ * {@link JwtKeyRegistry} and carry its id in the {@code kid} header; a single parser, built once,
+ * resolves the verification key from that header, so verifying a token decodes it only once.
+ */
 @Component
 public class JwtTokenUtil {
 
-    private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    private final JwtKeyRegistry jwtKeyRegistry;
+    private final long tokenLifetimeMs;
+    private final JwtParser parser;
 
+    /**
+     * Creates a token utility signing with a key generated for this instance, with a one minute lifetime.
+     */
+    public JwtTokenUtil() {
+        this(JwtKeyRegistry.ephemeral(), 60_000, 5_000);
+    }
+
+    @Autowired
+    public JwtTokenUtil(JwtKeyRegistry jwtKeyRegistry,
+                        @Value("${jwt.token-lifetime-ms:60000}") long tokenLifetimeMs,
+                        @Value("${jwt.clock-skew-ms:5000}") long clockSkewMs) {
+        this.jwtKeyRegistry = jwtKeyRegistry;
+        this.tokenLifetimeMs = tokenLifetimeMs;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        SecretKey key = jwtKeyRegistry.verificationKey(header.getKeyId());
+                        if (key == null) throw new SignatureException("Unknown signing key");
+                        return key;
+                    }
+                })
+                .setAllowedClockSkewSeconds(clockSkewMs / 1000)
+                .build();
+    }
 
     /**
-     * Generates a JSON Web Token (JWT) for the specified email.
+     * Generates a JSON Web Token (JWT) for the specified email, valid for {@code jwt.token-lifetime-ms}.
      *
      * @param email the email for which the token is to be generated
      * @return a signed JWT as a String
      */
     public String generateToken(String email) {
-        // 1 Minute
-        long EXPIRATION_TIME = 1000 * 60;
+        JwtKeyRegistry.SigningKey signingKey = jwtKeyRegistry.signingKey();
+        long now = System.currentTimeMillis();
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.id())
                 .setSubject(email)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(key, SignatureAlgorithm.HS256)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + tokenLifetimeMs))
+                .signWith(signingKey.secret(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -37,12 +73,7 @@ public class JwtTokenUtil {
      * @return true if the token is valid and properly signed, false otherwise
      */
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return parseEmail(token) != null;
     }
 
     /**
@@ -52,13 +83,22 @@ public class JwtTokenUtil {
      * @return the email address contained within the token's subject field
      */
     public String getEmailFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
+        return parser.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
-}
-
 
+    /**
+     * Verifies the provided JWT token and extracts its email address in a single pass.
+     *
+     * @param token the JWT token to be verified
+     * @return the email address of a valid token, or null if the token is invalid
+     */
+    public String parseEmail(String token) {
+        try {
+            return getEmailFromToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.nisum.users.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class PasswordHashCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "Calibration123";
+    private static final int SAMPLES = 3;
+
+    @Value("${security.password.bcrypt.strength:0}")
+    private int strength;
+
+    @Value("${security.password.bcrypt.target-latency-ms:250}")
+    private long targetLatencyMs;
+
+    @Value("${security.password.bcrypt.min-strength:10}")
+    private int minStrength;
+
+    @Value("${security.password.bcrypt.max-strength:16}")
+    private int maxStrength;
+
+    /**
+     * Determines the BCrypt work factor to use on this host. A fixed strength, when configured, is returned
+     * as is. Otherwise a sample password is hashed at increasing strengths, starting from the minimum, and the
+     * highest strength whose median hashing time stays within the target latency is returned. Since every
+     * step doubles the cost, the search stops as soon as the next strength would exceed the target.
+     *
+     * @return the BCrypt strength, never lower than the minimum nor higher than the maximum strength
+     */
+    public int calibrate() {
+        if (strength > 0) {
+            return strength;
+        }
+
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        new BCryptPasswordEncoder(minStrength).encode(SAMPLE_PASSWORD);
+
+        int selected = minStrength;
+        long selectedNanos = 0;
+        for (int candidate = minStrength; candidate <= maxStrength; candidate++) {
+            long elapsed = measure(candidate);
+            if (elapsed > targetNanos && candidate > minStrength) {
+                break;
+            }
+            selected = candidate;
+            selectedNanos = elapsed;
+            if (elapsed * 2 > targetNanos) {
+                break;
+            }
+        }
+
+        log.info("Calibrated BCrypt strength {} ({} ms per hash, target {} ms)",
+                selected, TimeUnit.NANOSECONDS.toMillis(selectedNanos), targetLatencyMs);
+        return selected;
+    }
+
+    /**
+     * Measures the median time needed to hash the sample password at the given strength.
+     *
+     * @param candidate the BCrypt strength to measure
+     * @return the median hashing time in nanoseconds
+     */
+    private long measure(int candidate) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(candidate);
+        long[] durations = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        return durations[SAMPLES / 2];
+    }
+}
@@ -13,18 +13,30 @@ public class PasswordValidator implements ConstraintValidator<ValidPassword, Str
     @Value("${validation.password.message}")
     private String message;
 
+    private boolean optional;
+
+    /**
+     * Reads the constraint attributes declared on the annotated field.
+     *
+     * @param constraintAnnotation the ValidPassword annotation instance for the field being validated
+     */
+    @Override
+    public void initialize(ValidPassword constraintAnnotation) {
+        this.optional = constraintAnnotation.optional();
+    }
+
     /**
      * Validates if the given string value matches a predefined pattern.
      * Updates the constraint violation message if the value is invalid.
      *
      * @param value the string value to be validated
      * @param context the context in which the constraint is evaluated
-     * @return true if the string value matches the pattern, false otherwise
+     * @return true if the string value matches the pattern, or is null and the constraint is optional
      */
     @Override
     public boolean isValid(String value, ConstraintValidatorContext context) {
         if (value == null) {
-            return false;
+            return optional;
         }
 
         boolean matches = value.matches(pattern);
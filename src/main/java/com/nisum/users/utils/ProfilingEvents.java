@@ -0,0 +1,138 @@
+package com.nisum.users.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.BaseStream;
+
+/**
+ * Custom JDK Flight Recorder events of the application, recorded alongside the JVM events of any running
+ * recording. An event costs a few field writes while a recording is running and nothing otherwise, so
+ * they are emitted unconditionally. Stack traces are left out except for slow repository calls, where the
+ * caller is what a profile needs to show.
+ */
+public final class ProfilingEvents {
+
+    private static final String CATEGORY = "Users";
+
+    private ProfilingEvents() {
+    }
+
+    @Name("com.nisum.users.UserServiceCall")
+    @Label("User Service Call")
+    @Description("A call to a UserService operation")
+    @Category({CATEGORY, "Service"})
+    @StackTrace(false)
+    public static class UserServiceCall extends Event {
+
+        @Label("Operation")
+        public String operation;
+
+        @Label("User Id")
+        public String userId;
+
+        @Label("Rows")
+        @Description("The users and phones returned, or the users listed")
+        public int rows;
+
+        @Label("Outcome")
+        @Description("OK, or the simple name of the exception thrown")
+        public String outcome;
+    }
+
+    @Name("com.nisum.users.JwtVerification")
+    @Label("JWT Verification")
+    @Description("The authentication of a request by its bearer token")
+    @Category({CATEGORY, "Security"})
+    @StackTrace(false)
+    public static class JwtVerification extends Event {
+
+        @Label("Outcome")
+        @Description("AUTHENTICATED, INVALID_TOKEN, UNKNOWN_USER or STALE_TOKEN")
+        public String outcome;
+
+        @Label("Email")
+        public String email;
+    }
+
+    @Name("com.nisum.users.PasswordHash")
+    @Label("Password Hash")
+    @Description("A BCrypt hash or comparison")
+    @Category({CATEGORY, "Security"})
+    @StackTrace(false)
+    public static class PasswordHash extends Event {
+
+        @Label("Operation")
+        @Description("encode or matches")
+        public String operation;
+
+        @Label("Strength")
+        @Description("The BCrypt work factor of the hash, or -1 if it has none")
+        public int strength;
+
+        @Label("Matched")
+        public boolean matched;
+    }
+
+    @Name("com.nisum.users.SlowRepositoryCall")
+    @Label("Slow Repository Call")
+    @Description("A Spring Data repository call slower than the threshold")
+    @Category({CATEGORY, "Persistence"})
+    @Threshold("20 ms")
+    public static class SlowRepositoryCall extends Event {
+
+        @Label("Repository")
+        public String repository;
+
+        @Label("Method")
+        public String method;
+
+        @Label("Rows")
+        @Description("The entities returned or the rows modified, or -1 for a stream")
+        public int rows;
+    }
+
+    /**
+     * Counts the rows in the result of a repository call.
+     *
+     * @param result the value returned by the call
+     * @return the number of entities returned or rows modified, or -1 if unknown until consumed
+     */
+    public static int rows(Object result) {
+        return switch (result) {
+            case null -> 0;
+            case Collection<?> collection -> collection.size();
+            case Map<?, ?> map -> map.size();
+            case Optional<?> optional -> optional.isPresent() ? 1 : 0;
+            case Integer count -> count;
+            case Long count -> (int) Math.min(count, Integer.MAX_VALUE);
+            case Boolean ignored -> 0;
+            case BaseStream<?, ?> ignored -> -1;
+            default -> 1;
+        };
+    }
+
+    /**
+     * Reads the BCrypt work factor of a hash, such as 10 in {@code {bcrypt}$2a$10$...}.
+     *
+     * @param hash the encoded password, with or without an encoder prefix
+     * @return the work factor, or -1 if the hash is not a BCrypt hash
+     */
+    public static int strength(String hash) {
+        if (hash == null) return -1;
+        int start = hash.indexOf('$', hash.indexOf('$') + 1);
+        if (start < 0 || start + 3 > hash.length()) return -1;
+        char tens = hash.charAt(start + 1);
+        char units = hash.charAt(start + 2);
+        if (!Character.isDigit(tens) || !Character.isDigit(units)) return -1;
+        return (tens - '0') * 10 + (units - '0');
+    }
+}
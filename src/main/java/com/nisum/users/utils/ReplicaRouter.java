@@ -0,0 +1,120 @@
+package com.nisum.users.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Decides when a read-only transaction must stay on the primary instead of a replica. Replicas may lag
+ * behind the primary, so after a user is created, logs in or is updated, reads of that user, and
+ * reads made by that user, are pinned to the primary for {@code replicas.sticky-window-ms}. The recent
+ * writes are only known to the node that made them.
+ */
+@Component
+public class ReplicaRouter {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+    private static final int MAX_TRACKED_WRITES = 100_000;
+
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+
+    @Value("${replicas.enabled:false}")
+    private boolean enabled;
+
+    @Value("${replicas.sticky-window-ms:5000}")
+    private long stickyWindowMs;
+
+    /**
+     * Tells whether the current transaction is pinned to the primary.
+     *
+     * @return true if reads must go to the primary
+     */
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    /**
+     * Runs a read with every connection of the current thread taken from the primary, for reads that must
+     * never see a lagging replica and run outside a transaction of their own, such as the token check.
+     *
+     * @param read the read to run
+     * @return the result of the read
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        if (isPinnedToPrimary()) return read.get();
+
+        PINNED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PINNED.remove();
+        }
+    }
+
+    /**
+     * Records a write of the given keys, so that reads of them are served by the primary during the
+     * sticky window.
+     *
+     * @param keys the keys identifying the written data, such as a user id and email
+     */
+    public void recordWrite(String... keys) {
+        if (!enabled || stickyWindowMs <= 0) return;
+
+        long until = System.currentTimeMillis() + stickyWindowMs;
+        if (recentWrites.size() >= MAX_TRACKED_WRITES) purgeExpired();
+        for (String key : keys) {
+            if (key != null) recentWrites.put(key, until);
+        }
+    }
+
+    /**
+     * Pins the current transaction to the primary if the given key, or the authenticated user, was
+     * written during the sticky window. It must be called before the transaction runs its first statement.
+     *
+     * @param key the key identifying the data about to be read
+     */
+    public void readYourWrites(String key) {
+        if (!enabled || recentWrites.isEmpty()) return;
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (isRecent(key) || (authentication != null && isRecent(authentication.getName()))) {
+            pinToPrimary();
+        }
+    }
+
+    /**
+     * Pins the current transaction to the primary until it completes.
+     */
+    public void pinToPrimary() {
+        if (!enabled || isPinnedToPrimary() || !TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        PINNED.set(Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                PINNED.remove();
+            }
+        });
+    }
+
+    private boolean isRecent(String key) {
+        if (key == null) return false;
+        Long until = recentWrites.get(key);
+        if (until == null) return false;
+        if (until >= System.currentTimeMillis()) return true;
+        recentWrites.remove(key, until);
+        return false;
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        recentWrites.values().removeIf(until -> until < now);
+    }
+}
@@ -0,0 +1,232 @@
+package com.nisum.users.utils;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Routes users to the shard selected by a hash of their email. Users keep the shard of the email they
+ * were created with: their identifier carries the same routing hash, so a lookup by id reaches a single
+ * shard even after the email changes, while a lookup by email that misses the home shard falls back to
+ * the other shards.
+ * <p>
+ * The shard of the current thread is read by the routing data source when a connection is acquired.
+ * Connections are acquired lazily, so a transaction is bound to a shard by {@link #bind(int)} before
+ * its first statement, and work on another shard runs in a transaction of its own on a worker thread.
+ * When sharding is disabled every method runs inline against the single data source. Worker threads
+ * run with the observation context of the submitting thread, so their spans join its trace.
+ */
+@Component
+public class ShardRouter {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final TransactionTemplate readTemplate;
+    private final TransactionTemplate writeTemplate;
+    private final int shardCount;
+    private final ExecutorService executor;
+
+    public ShardRouter(PlatformTransactionManager transactionManager,
+                       @Value("${sharding.enabled:false}") boolean enabled,
+                       @Value("${sharding.urls:}") List<String> urls,
+                       @Value("${sharding.workers-per-shard:2}") int workersPerShard) {
+        this.shardCount = enabled ? Math.max(urls.size(), 1) : 1;
+        this.readTemplate = newTemplate(transactionManager, true);
+        this.writeTemplate = newTemplate(transactionManager, false);
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = shardCount > 1
+                ? ContextExecutorService.wrap(Executors.newFixedThreadPool(shardCount * workersPerShard, runnable -> {
+                    Thread thread = new Thread(runnable, "shard-worker-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }), ContextSnapshotFactory.builder().build())
+                : null;
+    }
+
+    /**
+     * Returns the shard the current thread is bound to, or null to use the default shard.
+     *
+     * @return the current shard index
+     */
+    public static Integer currentShard() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Computes the 16-bit routing hash of an email, stored in the most significant bits of user ids.
+     *
+     * @param email the email to hash
+     * @return the routing hash, between 0 and 65535
+     */
+    public static int routingHash(String email) {
+        return (int) (EmailIndex.fingerprint(email) >>> 48);
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(String email) {
+        return isSharded() ? routingHash(email) % shardCount : 0;
+    }
+
+    public int shardOf(UUID id) {
+        return isSharded() ? (int) (id.getMostSignificantBits() >>> 48) % shardCount : 0;
+    }
+
+    /**
+     * Binds the current transaction to a shard until it completes. It must be called before the
+     * transaction runs its first statement.
+     *
+     * @param shard the shard index
+     * @throws IllegalStateException if no transaction is active or it is already bound to another shard
+     */
+    public void bind(int shard) {
+        if (!isSharded()) return;
+
+        Integer current = CURRENT.get();
+        if (current != null) {
+            if (current != shard)
+                throw new IllegalStateException("Transaction already bound to shard " + current);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            throw new IllegalStateException("No transaction to bind to shard " + shard);
+
+        CURRENT.set(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                CURRENT.remove();
+            }
+        });
+    }
+
+    /**
+     * Runs a read on the given shard: inline when the current thread is already bound to it or is
+     * outside any transaction, otherwise in a read-only transaction on a worker thread.
+     *
+     * @param shard the shard index
+     * @param action the read to run
+     * @return the result of the read
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        if (!isSharded()) return action.get();
+
+        Integer current = CURRENT.get();
+        if (current != null && current == shard) return action.get();
+        if (current == null && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return callOnShard(shard, action::get);
+        }
+        return await(executor.submit(() -> inTransaction(shard, true, action)));
+    }
+
+    /**
+     * Runs an action in a new transaction bound to the given shard, suspending the current one.
+     *
+     * @param shard the shard index
+     * @param readOnly whether the transaction is read-only
+     * @param action the action to run
+     * @return the result of the action
+     */
+    public <T> T inTransaction(int shard, boolean readOnly, Supplier<T> action) {
+        TransactionTemplate template = readOnly ? readTemplate : writeTemplate;
+        return callOnShard(shard, () -> template.execute(status -> action.get()));
+    }
+
+    /**
+     * Runs an action with the current thread routed to the given shard, for work that acquires its
+     * connection outside a Spring transaction, such as a stateless session or a schema migration.
+     *
+     * @param shard the shard index
+     * @param action the action to run
+     * @return the result of the action
+     * @throws E the exception thrown by the action
+     */
+    public static <T, E extends Exception> T callOnShard(int shard, ShardCallable<T, E> action) throws E {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.call();
+        } finally {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Runs a read on every shard in parallel, each in its own read-only transaction, and gathers the
+     * results in shard order. When sharding is disabled the read runs inline.
+     *
+     * @param action the read to run, given the shard index
+     * @return the result of every shard, indexed by shard
+     */
+    public <T> List<T> scatter(IntFunction<T> action) {
+        if (!isSharded()) return Collections.singletonList(action.apply(0));
+
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> inTransaction(target, true, () -> action.apply(target))));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    private static TransactionTemplate newTemplate(PlatformTransactionManager transactionManager, boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(readOnly);
+        return template;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException("Shard operation failed", e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    public interface ShardCallable<T, E extends Exception> {
+
+        T call() throws E;
+    }
+}
@@ -0,0 +1,40 @@
+package com.nisum.users.utils;
+
+import com.nisum.users.entities.User;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+import java.util.EnumSet;
+import java.util.UUID;
+
+public class ShardedUuidGenerator implements BeforeExecutionGenerator {
+
+    private static final long RANDOM_BITS_MASK = 0x0000FFFFFFFFFFFFL;
+
+    /**
+     * Generates a version 4 UUID and replaces its 16 most significant bits with the routing hash of the
+     * owner's email. The version and variant bits are left untouched.
+     *
+     * @param session the session generating the identifier
+     * @param owner the entity being persisted
+     * @param currentValue the current identifier value, ignored
+     * @param eventType the event triggering the generation
+     * @return the generated identifier
+     */
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        UUID random = UUID.randomUUID();
+        if (!(owner instanceof User user) || user.getEmail() == null) {
+            return random;
+        }
+        long mostSignificantBits = (random.getMostSignificantBits() & RANDOM_BITS_MASK)
+                | ((long) ShardRouter.routingHash(user.getEmail()) << 48);
+        return new UUID(mostSignificantBits, random.getLeastSignificantBits());
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EnumSet.of(EventType.INSERT);
+    }
+}
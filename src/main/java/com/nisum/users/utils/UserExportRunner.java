@@ -0,0 +1,47 @@
+package com.nisum.users.utils;
+
+import com.nisum.users.dto.ExportFormat;
+import com.nisum.users.service.UserExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Component
+@Order
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "export.file")
+public class UserExportRunner implements CommandLineRunner {
+
+    private final UserExportService userExportService;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${export.file}")
+    private String file;
+
+    @Value("${export.format:CSV}")
+    private ExportFormat format;
+
+    @Value("${export.partitions:1}")
+    private int partitions;
+
+    /**
+     * Runs the application in export mode: writes the full user dump to the file given by
+     * {@code --export.file} and shuts the application down once the export is complete.
+     *
+     * @param args command line arguments passed to the execution context; not used in this implementation
+     * @throws IOException if the export file cannot be written
+     */
+    @Override
+    public void run(String... args) throws IOException {
+        userExportService.export(format, partitions, Path.of(file));
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,143 @@
+package com.nisum.users.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.dto.UserCreatedDTO;
+import com.nisum.users.entities.Phone;
+import com.nisum.users.entities.User;
+import com.nisum.users.repositories.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@ConditionalOnProperty(name = "warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmUpRunner implements CommandLineRunner {
+
+    private static final String WARMUP_PASSWORD = "WarmUp123";
+
+    private final JwtTokenUtil jwtTokenUtil;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final PasswordEncoder passwordEncoder;
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${warmup.iterations:2000}")
+    private int iterations;
+
+    @Value("${warmup.repository-iterations:50}")
+    private int repositoryIterations;
+
+    /**
+     * Exercises the hot request paths with synthetic data so they are compiled by the JIT before the
+     * application receives traffic. Spring Boot only reports the readiness state as accepting traffic
+     * once every runner has completed, so the actuator readiness probe stays down until the warm-up ends.
+     *
+     * @param args command line arguments passed to the execution context; not used in this implementation
+     * @throws IOException if the synthetic data cannot be serialized
+     */
+    @Override
+    public void run(String... args) throws IOException {
+        long start = System.nanoTime();
+
+        String lowCostHash = "{bcrypt}" + new BCryptPasswordEncoder(4).encode(WARMUP_PASSWORD);
+        UserCreateDTO userCreateDTO = syntheticUserCreateDTO();
+        byte[] userCreateJson = objectMapper.writeValueAsBytes(userCreateDTO);
+        User user = syntheticUser();
+
+        for (int i = 0; i < iterations; i++) {
+            String token = jwtTokenUtil.generateToken(user.getEmail());
+            jwtTokenUtil.parseEmail(token);
+
+            validator.validate(objectMapper.readValue(userCreateJson, UserCreateDTO.class));
+            objectMapper.writeValueAsBytes(user);
+            objectMapper.writeValueAsBytes(UserCreatedDTO.builder()
+                    .id(user.getId())
+                    .createdAt(user.getCreatedAt())
+                    .updatedAt(user.getUpdatedAt())
+                    .lastLogin(user.getLastLogin())
+                    .token(token)
+                    .isActive(user.isActive())
+                    .build());
+
+            if (i % 100 == 0) {
+                passwordEncoder.matches(WARMUP_PASSWORD, lowCostHash);
+            }
+        }
+
+        for (int i = 0; i < repositoryIterations; i++) {
+            warmUpRepository();
+        }
+
+        log.info("Warm-up completed in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Inserts, queries and loads a synthetic user inside a transaction that is always rolled back,
+     * so Hibernate builds its query plans without leaving any data behind.
+     */
+    private void warmUpRepository() {
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = syntheticUser();
+            user.setId(null);
+            user.setPhones(null);
+            userRepository.saveAndFlush(user);
+            entityManager.clear();
+            userRepository.findByEmail(user.getEmail());
+            userRepository.findById(user.getId());
+            status.setRollbackOnly();
+        });
+    }
+
+    private UserCreateDTO syntheticUserCreateDTO() {
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Warm Up");
+        userCreateDTO.setEmail("warmup@example.com");
+        userCreateDTO.setPassword(WARMUP_PASSWORD);
+        userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "1", "56")));
+        return userCreateDTO;
+    }
+
+    private User syntheticUser() {
+        LocalDateTime now = LocalDateTime.now();
+        return User.builder()
+                .id(UUID.randomUUID())
+                .name("Warm Up")
+                .email("warmup-" + UUID.randomUUID() + "@example.com")
+                .password(WARMUP_PASSWORD)
+                .phones(Set.of(Phone.builder()
+                        .id(UUID.randomUUID())
+                        .number("123456789")
+                        .cityCode("1")
+                        .countryCode("56")
+                        .build()))
+                .lastLogin(now)
+                .token("token")
+                .isActive(true)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
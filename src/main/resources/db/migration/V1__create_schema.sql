@@ -0,0 +1,58 @@
+-- Users, looked up by email on signup, login and token authentication, and paged by id.
+create table app_user (
+    id uuid not null,
+    name varchar(255) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    last_login timestamp(6),
+    token varchar(512),
+    is_active boolean not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    version bigint,
+    constraint pk_app_user primary key (id),
+    constraint uk_app_user_email unique (email)
+);
+
+create table phone (
+    id uuid not null,
+    number varchar(255),
+    city_code varchar(255),
+    country_code varchar(255),
+    constraint pk_phone primary key (id)
+);
+
+-- The primary key leads with the user, so loading the phones of a user is an index range scan.
+create table app_user_phones (
+    app_user_id uuid not null,
+    phones_id uuid not null,
+    constraint pk_app_user_phones primary key (app_user_id, phones_id),
+    constraint uk_app_user_phones_phone unique (phones_id),
+    constraint fk_app_user_phones_user foreign key (app_user_id) references app_user (id),
+    constraint fk_app_user_phones_phone foreign key (phones_id) references phone (id)
+);
+
+-- Read by id ranges by the change feed relay and pruned by age.
+create table outbox_event (
+    id bigint generated by default as identity,
+    type enum ('USER_CREATED', 'USER_LOGGED_IN', 'USER_UPDATED') not null,
+    user_id uuid not null,
+    email varchar(255) not null,
+    occurred_at timestamp(6) not null,
+    constraint pk_outbox_event primary key (id)
+);
+
+create index ix_outbox_event_occurred_at on outbox_event (occurred_at);
+
+-- Polled by id by the database invalidation bus and pruned by age.
+create table invalidation_event (
+    id bigint generated by default as identity,
+    node_id varchar(255) not null,
+    entity_type varchar(255) not null,
+    entity_id uuid,
+    email varchar(255),
+    created_at timestamp(6) not null,
+    constraint pk_invalidation_event primary key (id)
+);
+
+create index ix_invalidation_event_created_at on invalidation_event (created_at);
@@ -0,0 +1,2 @@
+-- Lets the email index catch up from its snapshot with a range scan on the update time.
+create index ix_app_user_updated_at on app_user (updated_at);
@@ -0,0 +1,10 @@
+create table idempotency_record (
+    id varchar(255) not null,
+    fingerprint varchar(255) not null,
+    response varchar(4096),
+    created_at timestamp(6) not null,
+    expires_at timestamp(6) not null,
+    constraint pk_idempotency_record primary key (id)
+);
+
+create index ix_idempotency_record_expires_at on idempotency_record (expires_at);
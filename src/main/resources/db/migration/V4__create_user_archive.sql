@@ -0,0 +1,33 @@
+-- Scanned oldest first by the tiering job to find inactive users.
+create index ix_app_user_last_login on app_user (last_login);
+
+-- Inactive users moved out of app_user, keeping its indexes small. Looked up by id and email on a miss.
+create table archived_user (
+    id uuid not null,
+    name varchar(255) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    last_login timestamp(6),
+    token varchar(512),
+    is_active boolean not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    version bigint,
+    archived_at timestamp(6) not null,
+    constraint pk_archived_user primary key (id),
+    constraint uk_archived_user_email unique (email)
+);
+
+create index ix_archived_user_archived_at on archived_user (archived_at);
+
+create table archived_phone (
+    id uuid not null,
+    user_id uuid not null,
+    number varchar(255),
+    city_code varchar(255),
+    country_code varchar(255),
+    constraint pk_archived_phone primary key (id),
+    constraint fk_archived_phone_user foreign key (user_id) references archived_user (id)
+);
+
+create index ix_archived_phone_user_id on archived_phone (user_id);
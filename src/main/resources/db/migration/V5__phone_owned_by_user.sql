@@ -0,0 +1,16 @@
+-- Phones hold the foreign key to their user, so a user's phones are inserted with it in one batch and
+-- read with a single index range scan, without the app_user_phones join table.
+alter table phone add column user_id uuid;
+
+update phone p set user_id = (select l.app_user_id from app_user_phones l where l.phones_id = p.id);
+
+-- Phones never linked to a user were unreachable through the mapping.
+delete from phone where user_id is null;
+
+alter table phone alter column user_id set not null;
+
+alter table phone add constraint fk_phone_user foreign key (user_id) references app_user (id);
+
+create index ix_phone_user_id on phone (user_id);
+
+drop table app_user_phones;
@@ -0,0 +1,12 @@
+-- Every email is claimed on its home shard, so two users stored on different shards cannot both commit
+-- it. Existing users claim their email on the shard that holds them; users whose email changed to one
+-- routed to another shard are still found by the lookup that scatters to every shard.
+create table email_claim (
+    email varchar(255) not null,
+    user_id uuid not null,
+    constraint pk_email_claim primary key (email)
+);
+
+insert into email_claim (email, user_id) select email, id from app_user;
+
+insert into email_claim (email, user_id) select email, id from archived_user;
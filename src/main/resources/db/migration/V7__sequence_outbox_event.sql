@@ -0,0 +1,17 @@
+-- The relay gives every outbox row its position in the change feed once the row is committed, holding
+-- the lock on the feed_relay row, so positions are committed in order and a transaction that commits
+-- late is relayed after the others instead of being skipped as a gap in the ids. Existing rows keep
+-- their id as their position, so the offsets held by consumers stay valid.
+alter table outbox_event add column position bigint;
+
+update outbox_event set position = id;
+
+alter table outbox_event add constraint uk_outbox_event_position unique (position);
+
+create table feed_relay (
+    id integer not null,
+    last_position bigint not null,
+    constraint pk_feed_relay primary key (id)
+);
+
+insert into feed_relay (id, last_position) select 1, coalesce(max(position), 0) from outbox_event;
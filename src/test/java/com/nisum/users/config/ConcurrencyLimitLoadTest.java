@@ -0,0 +1,189 @@
+package com.nisum.users.config;
+
+import com.nisum.users.UsersApplication;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test of the concurrency limits on the login endpoint, the most CPU-heavy one with BCrypt at
+ * strength 10. The capacity is first measured in a closed loop with the limits disabled; then an open
+ * loop offers three times that rate, with the limits disabled and enabled. Latencies are measured from
+ * the intended send time, so a server falling behind is not hidden by the client waiting for it.
+ * Without the limits the requests queue on the Tomcat pool and the latency grows for as long as the
+ * overload lasts; with them the excess is rejected at once and the p99 of the accepted logins stays
+ * close to the latency of an unloaded server.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ConcurrencyLimitLoadTest {
+
+    private static final int USERS = 10_000;
+    private static final int OVERLOAD = 3;
+    private static final Duration CAPACITY_DURATION = Duration.ofSeconds(10);
+    private static final Duration LOAD_DURATION = Duration.ofSeconds(15);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    @Test
+    @DisplayName("Benchmark: login p99 under 3x overload with and without the concurrency limits")
+    void benchmarkOverload() throws Exception {
+        double capacity = run(false, port -> closedLoop(port, Runtime.getRuntime().availableProcessors() * 2));
+        System.out.printf("capacity: %.0f logins/s%n", capacity);
+
+        double rate = capacity * OVERLOAD;
+        Result unlimited = run(false, port -> openLoop(port, rate));
+        Result limited = run(true, port -> openLoop(port, rate));
+
+        unlimited.print("without limits");
+        limited.print("with limits");
+        assertTrue(limited.p99Ms() < unlimited.p99Ms(),
+                () -> "p99 with limits " + limited.p99Ms() + " ms, without " + unlimited.p99Ms() + " ms");
+    }
+
+    private <T> T run(boolean enabled, Load<T> load) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UsersApplication.class)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:concurrency-" + enabled + "-" + System.nanoTime(),
+                        "server.port=0",
+                        "warmup.enabled=false",
+                        "email-index.enabled=false",
+                        "security.password.bcrypt.strength=10",
+                        "concurrency.enabled=" + enabled)
+                .run()) {
+            load(context.getBean(JdbcTemplate.class), context.getBean(PasswordEncoder.class).encode("Password123"));
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            return load.apply(port);
+        }
+    }
+
+    private void load(JdbcTemplate jdbcTemplate, String password) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            rows.add(new Object[]{UUID.randomUUID(), "Loaded User", email(i), password, now, now, now});
+        }
+        jdbcTemplate.batchUpdate("insert into app_user (id, name, email, password, is_active, created_at, "
+                + "updated_at, last_login, version) values (?, ?, ?, ?, true, ?, ?, ?, 0)", rows);
+    }
+
+    /**
+     * Logs in from a fixed number of clients, each sending its next request once the previous one
+     * completes, and returns the throughput.
+     */
+    private double closedLoop(int port, int clients) throws Exception {
+        HttpClient httpClient = httpClient();
+        AtomicLong completed = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(clients)) {
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                executor.submit(() -> {
+                    for (int i = client; running.get(); i += clients) {
+                        if (httpClient.send(login(port, i), HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                            completed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            Thread.sleep(CAPACITY_DURATION);
+            running.set(false);
+        }
+        return completed.get() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Sends logins at a fixed rate regardless of how fast they complete, and returns their latencies
+     * and the share of rejected requests.
+     */
+    private Result openLoop(int port, double rate) {
+        HttpClient httpClient = httpClient();
+        int requests = (int) (rate * LOAD_DURATION.toSeconds());
+        long interval = (long) (1e9 / rate);
+        long[] latencies = new long[requests];
+        boolean[] accepted = new boolean[requests];
+        List<CompletableFuture<?>> futures = new ArrayList<>(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long intended = start + i * interval;
+            LockSupport.parkNanos(intended - System.nanoTime());
+            int request = i;
+            futures.add(httpClient.sendAsync(login(port, i), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        latencies[request] = System.nanoTime() - intended;
+                        accepted[request] = failure == null && response.statusCode() == 200;
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        long[] acceptedLatencies = new long[requests];
+        int count = 0;
+        for (int i = 0; i < requests; i++) {
+            if (accepted[i]) acceptedLatencies[count++] = latencies[i];
+        }
+        Arrays.sort(acceptedLatencies, 0, count);
+        double p99Ms = count == 0 ? 0 : acceptedLatencies[(int) Math.ceil(count * 0.99) - 1] / 1e6;
+        double p50Ms = count == 0 ? 0 : acceptedLatencies[(int) Math.ceil(count * 0.5) - 1] / 1e6;
+        return new Result(rate, p50Ms, p99Ms, 1 - (double) count / requests);
+    }
+
+    private static HttpClient httpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    private static HttpRequest login(int port, int i) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/users/login"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\": \"" + email(i % USERS) + "\", \"password\": \"Password123\"}"))
+                .build();
+    }
+
+    private static String email(int i) {
+        return "loaded." + i + "@example.com";
+    }
+
+    private record Result(double rate, double p50Ms, double p99Ms, double rejectedShare) {
+
+        void print(String name) {
+            System.out.printf("%s at %.0f logins/s: p50 %.0f ms, p99 %.0f ms, %.1f%% rejected%n",
+                    name, rate, p50Ms, p99Ms, rejectedShare * 100);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Load<T> {
+        T apply(int port) throws Exception;
+    }
+}
@@ -0,0 +1,107 @@
+package com.nisum.users.config;
+
+import com.nisum.users.utils.ProfilingEvents;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FlightRecordingEndpoint runs one bounded recording at a time and streams it back with the custom
+ * events of the application.
+ */
+class FlightRecordingEndpointTest {
+
+    @TempDir
+    private Path directory;
+
+    private final FlightRecordingEndpoint endpoint = new FlightRecordingEndpoint(60, 600, 100);
+
+    @AfterEach
+    void stopRecording() {
+        endpoint.stop();
+    }
+
+    @Test
+    @DisplayName("Flight recording: Should stream a recording holding the custom events")
+    void shouldStreamRecordingWithCustomEvents() throws Exception {
+        // Arrange
+        endpoint.start("profile", 30L);
+        ProfilingEvents.UserServiceCall event = new ProfilingEvents.UserServiceCall();
+        event.begin();
+        event.operation = "getUserById";
+        event.userId = "42";
+        event.rows = 3;
+        event.outcome = "OK";
+        event.commit();
+
+        // Act
+        WebEndpointResponse<Resource> response = endpoint.stop();
+
+        // Assert
+        Path file = directory.resolve("recording.jfr");
+        try (InputStream in = response.getBody().getInputStream()) {
+            Files.copy(in, file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(recorded -> recorded.getEventType().getName().equals("com.nisum.users.UserServiceCall"))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals("42", events.get(0).getString("userId"));
+        assertEquals(3, events.get(0).getInt("rows"));
+        assertTrue(RecordingFile.readAllEvents(file).stream()
+                .noneMatch(recorded -> recorded.getEventType().getName().equals("jdk.InitialEnvironmentVariable")));
+        assertFalse(response.getBody().exists(), "The recording should be deleted once streamed.");
+    }
+
+    @Test
+    @DisplayName("Flight recording: Should run a single recording at a time, bounded by the maximum duration")
+    void shouldRunSingleBoundedRecording() {
+        // Arrange
+        WebEndpointResponse<FlightRecordingEndpoint.Status> started = endpoint.start(null, 3_600L);
+
+        // Act
+        WebEndpointResponse<FlightRecordingEndpoint.Status> second = endpoint.start("default", null);
+
+        // Assert
+        assertEquals(200, started.getStatus());
+        assertEquals("default", started.getBody().profile());
+        assertEquals(600, started.getBody().durationSeconds());
+        assertEquals(409, second.getStatus());
+        assertEquals("RUNNING", endpoint.status().getBody().state());
+    }
+
+    @Test
+    @DisplayName("Flight recording: Should reject unknown profiles and report a missing recording")
+    void shouldRejectUnknownProfile() {
+        // Act & Assert
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.start("verbose", null));
+        assertEquals(404, endpoint.status().getStatus());
+        assertEquals(404, endpoint.stop().getStatus());
+    }
+
+    @Test
+    @DisplayName("Flight recording: Should read the BCrypt work factor and count repository rows")
+    void shouldDescribeEventFields() {
+        // Act & Assert
+        assertEquals(10, ProfilingEvents.strength("{bcrypt}$2a$10$abcdefghijklmnopqrstuv"));
+        assertEquals(4, ProfilingEvents.strength("$2b$04$abcdefghijklmnopqrstuv"));
+        assertEquals(-1, ProfilingEvents.strength("plain"));
+        assertEquals(2, ProfilingEvents.rows(List.of("a", "b")));
+        assertEquals(0, ProfilingEvents.rows(Optional.empty()));
+        assertEquals(5, ProfilingEvents.rows(5));
+    }
+}
@@ -0,0 +1,118 @@
+package com.nisum.users.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ReplicaPool class, covering the round-robin selection, the ejection of failing
+ * replicas and their readmission once a health check succeeds, and the refusal of an empty pool.
+ */
+class ReplicaPoolTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Replicas: Should hand out healthy replicas in round-robin order")
+    void shouldSelectReplicasInRoundRobinOrder() {
+        // Arrange
+        ReplicaPool replicaPool = new ReplicaPool(List.of(new StubDataSource(), new StubDataSource()), meterRegistry, 1);
+
+        // Act
+        String first = replicaPool.select().getName();
+        String second = replicaPool.select().getName();
+        String third = replicaPool.select().getName();
+
+        // Assert
+        assertNotEquals(first, second);
+        assertEquals(first, third);
+    }
+
+    @Test
+    @DisplayName("Replicas: Should select no replica from an empty pool")
+    void shouldSelectNothingFromEmptyPool() {
+        // Arrange
+        ReplicaPool replicaPool = new ReplicaPool(List.of(), meterRegistry, 1);
+
+        // Act & Assert
+        assertNull(replicaPool.select());
+    }
+
+    @Test
+    @DisplayName("Replicas: Should refuse to create the pool without replica URLs")
+    void shouldRequireReplicaUrls() {
+        // Act & Assert
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new ReplicaConfig().replicaPool(new DataSourceProperties(), List.of(""), meterRegistry, 1));
+        assertTrue(e.getMessage().contains("replicas.urls"));
+    }
+
+    @Test
+    @DisplayName("Replicas: Should eject a failing replica and readmit it once it recovers")
+    void shouldEjectAndReadmitReplica() {
+        // Arrange
+        StubDataSource failing = new StubDataSource();
+        ReplicaPool replicaPool = new ReplicaPool(List.of(failing, new StubDataSource()), meterRegistry, 1);
+        failing.available = false;
+
+        // Act
+        replicaPool.checkHealth();
+
+        // Assert
+        assertFalse(replicaPool.replicas().get(0).isHealthy());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("replica-1", replicaPool.select().getName());
+        }
+        assertEquals(0.0, meterRegistry.get("db.replica.healthy").tag("replica", "replica-0").gauge().value());
+
+        // Act
+        failing.available = true;
+        replicaPool.checkHealth();
+
+        // Assert
+        assertTrue(replicaPool.replicas().get(0).isHealthy());
+        assertEquals(1L, meterRegistry.get("db.replica.ping").tag("replica", "replica-0").timer().count());
+    }
+
+    @Test
+    @DisplayName("Replicas: Should select no replica when every replica is ejected")
+    void shouldSelectNothingWhenEveryReplicaIsEjected() {
+        // Arrange
+        StubDataSource failing = new StubDataSource();
+        ReplicaPool replicaPool = new ReplicaPool(List.of(failing), meterRegistry, 1);
+        failing.available = false;
+
+        // Act
+        replicaPool.checkHealth();
+
+        // Assert
+        assertNull(replicaPool.select());
+    }
+
+    private static final class StubDataSource extends AbstractDataSource {
+
+        private volatile boolean available = true;
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!available) throw new SQLException("Replica unavailable");
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> method.getName().equals("isValid") ? Boolean.TRUE : null);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.nisum.users.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ReplicaRoutingDataSource class, with in-memory H2 databases standing in for the
+ * primary and a replica.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica";
+
+    private final ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(
+            new DriverManagerDataSource(PRIMARY_URL, "sa", ""),
+            new ReplicaPool(List.of(new DriverManagerDataSource(REPLICA_URL, "sa", "")), new SimpleMeterRegistry(), 1));
+
+    @AfterEach
+    void clearReadOnly() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("Replicas: Should hand out replica connections to read-only transactions")
+    void shouldRouteReadOnlyToReplica() throws Exception {
+        // Arrange
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        try (Connection connection = dataSource.getConnection()) {
+
+            // Assert
+            assertEquals(REPLICA_URL, connection.getMetaData().getURL());
+        }
+    }
+
+    @Test
+    @DisplayName("Replicas: Should open connections with explicit credentials on the primary")
+    void shouldOpenConnectionWithCredentialsOnPrimary() throws Exception {
+        // Arrange
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Act
+        try (Connection connection = dataSource.getConnection("sa", "")) {
+
+            // Assert
+            assertEquals(PRIMARY_URL, connection.getMetaData().getURL());
+        }
+    }
+}
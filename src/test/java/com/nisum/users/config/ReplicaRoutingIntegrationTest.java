@@ -0,0 +1,113 @@
+package com.nisum.users.config;
+
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.entities.User;
+import com.nisum.users.exceptions.NotFoundException;
+import com.nisum.users.service.UserService;
+import com.nisum.users.utils.ReplicaRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests of the read replica routing, with two in-memory H2 databases standing in for the
+ * replicas. The replicas only receive the schema and no replication, so a read served by a replica
+ * does not see the users written to the primary.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-primary",
+        "replicas.enabled=true",
+        "replicas.urls=jdbc:h2:mem:replica-test-0,jdbc:h2:mem:replica-test-1",
+        "replicas.export-schema=true",
+        "replicas.sticky-window-ms=60000",
+        "security.password.bcrypt.strength=4",
+        "warmup.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReplicaRoutingIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("Replicas: Should read a user just created from the primary")
+    void shouldReadYourWrites() {
+        // Arrange
+        User user = userService.createUser(userCreateDTO("replica.sticky@example.com"));
+
+        // Act
+        User found = userService.getUserById(user.getId());
+
+        // Assert
+        assertEquals(user.getEmail(), found.getEmail());
+    }
+
+    @Test
+    @DisplayName("Replicas: Should read from a replica outside the sticky window")
+    void shouldReadFromReplica() {
+        // Arrange
+        ReflectionTestUtils.setField(replicaRouter, "stickyWindowMs", 0L);
+        try {
+            User user = userService.createUser(userCreateDTO("replica.lagging@example.com"));
+            double usage = replicaUsage();
+
+            // Act & Assert
+            assertThrows(NotFoundException.class, () -> userService.getUserById(user.getId()));
+            assertTrue(replicaUsage() > usage, "The read should be recorded against a replica");
+        } finally {
+            ReflectionTestUtils.setField(replicaRouter, "stickyWindowMs", 60000L);
+        }
+    }
+
+    @Test
+    @DisplayName("Replicas: Should accept a token just issued outside the sticky window")
+    void shouldAuthenticateFreshToken() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(replicaRouter, "stickyWindowMs", 0L);
+        try {
+            User user = userService.createUser(userCreateDTO("replica.token@example.com"));
+
+            // Act & Assert: authenticated, then read from a replica that never received the user
+            mockMvc.perform(get("/api/v1/users/{id}", user.getId())
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + user.getToken()))
+                    .andExpect(status().isNotFound());
+        } finally {
+            ReflectionTestUtils.setField(replicaRouter, "stickyWindowMs", 60000L);
+        }
+    }
+
+    private double replicaUsage() {
+        return meterRegistry.find("db.replica.usage").timers().stream().mapToLong(timer -> timer.count()).sum();
+    }
+
+    private UserCreateDTO userCreateDTO(String email) {
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Replica User");
+        userCreateDTO.setEmail(email);
+        userCreateDTO.setPassword("Password123");
+        userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "2", "56")));
+        return userCreateDTO;
+    }
+}
@@ -0,0 +1,127 @@
+package com.nisum.users.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TailSamplingSpanExporter decides on whole traces once their local root span ends, keeping the slow
+ * and failed ones. Spans are given explicit timestamps, offset from the start of the test, so their
+ * durations are exact; a start timestamp of zero would make the SDK use the current time instead.
+ */
+class TailSamplingSpanExporterTest {
+
+    @TempDir
+    private Path directory;
+
+    private final long epochMs = System.currentTimeMillis();
+
+    private SdkTracerProvider tracerProvider;
+
+    @AfterEach
+    void closeTracerProvider() {
+        tracerProvider.close();
+    }
+
+    @Test
+    @DisplayName("Tail sampling: Should keep slow traces and drop fast ones")
+    void shouldKeepSlowTraces() {
+        // Arrange
+        TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(100, 10, null, new ObjectMapper());
+        Tracer tracer = tracer(exporter);
+
+        // Act
+        trace(tracer, "fast", 50, false);
+        trace(tracer, "slow", 150, false);
+
+        // Assert
+        List<TailSamplingSpanExporter.Trace> traces = exporter.traces();
+        assertEquals(1, traces.size());
+        assertEquals("slow", traces.get(0).name());
+        assertEquals(150.0, traces.get(0).durationMs());
+        assertEquals(List.of("child", "slow"), traces.get(0).spans().stream().map(TailSamplingSpanExporter.Span::name).toList());
+    }
+
+    @Test
+    @DisplayName("Tail sampling: Should keep fast traces with a failed span")
+    void shouldKeepFailedTraces() {
+        // Arrange
+        TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(100, 10, null, new ObjectMapper());
+        Tracer tracer = tracer(exporter);
+
+        // Act
+        trace(tracer, "failed", 10, true);
+
+        // Assert
+        List<TailSamplingSpanExporter.Trace> traces = exporter.traces();
+        assertEquals(1, traces.size());
+        assertTrue(traces.get(0).spans().get(0).error());
+    }
+
+    @Test
+    @DisplayName("Tail sampling: Should append spans ending after the root of a kept trace")
+    void shouldAppendLateSpans() throws Exception {
+        // Arrange
+        Path file = directory.resolve("traces.jsonl");
+        TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(100, 10, file, new ObjectMapper());
+        Tracer tracer = tracer(exporter);
+        Span root = tracer.spanBuilder("slow").setNoParent().setStartTimestamp(epochMs, TimeUnit.MILLISECONDS).startSpan();
+        Span async = tracer.spanBuilder("async").setParent(Context.root().with(root))
+                .setStartTimestamp(epochMs + 10, TimeUnit.MILLISECONDS).startSpan();
+
+        // Act
+        root.end(epochMs + 200, TimeUnit.MILLISECONDS);
+        async.end(epochMs + 300, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertEquals(List.of("slow", "async"),
+                exporter.traces().get(0).spans().stream().map(TailSamplingSpanExporter.Span::name).toList());
+        assertEquals(2, Files.readAllLines(file).size());
+    }
+
+    @Test
+    @DisplayName("Tail sampling: Should keep only the most recent traces")
+    void shouldBoundKeptTraces() {
+        // Arrange
+        TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(0, 2, null, new ObjectMapper());
+        Tracer tracer = tracer(exporter);
+
+        // Act
+        trace(tracer, "first", 10, false);
+        trace(tracer, "second", 10, false);
+        trace(tracer, "third", 10, false);
+
+        // Assert
+        assertEquals(List.of("third", "second"),
+                exporter.traces().stream().map(TailSamplingSpanExporter.Trace::name).toList());
+    }
+
+    private Tracer tracer(TailSamplingSpanExporter exporter) {
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter)).build();
+        return tracerProvider.get("test");
+    }
+
+    private void trace(Tracer tracer, String name, long durationMs, boolean failed) {
+        Span root = tracer.spanBuilder(name).setNoParent().setStartTimestamp(epochMs, TimeUnit.MILLISECONDS).startSpan();
+        Span child = tracer.spanBuilder("child").setParent(Context.root().with(root))
+                .setStartTimestamp(epochMs + 1, TimeUnit.MILLISECONDS).startSpan();
+        if (failed) child.setStatus(StatusCode.ERROR);
+        child.end(epochMs + durationMs - 1, TimeUnit.MILLISECONDS);
+        root.end(epochMs + durationMs, TimeUnit.MILLISECONDS);
+    }
+}
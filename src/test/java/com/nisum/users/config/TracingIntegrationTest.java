@@ -0,0 +1,123 @@
+package com.nisum.users.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that a request is traced through every layer, from the HTTP server down to the SQL statements,
+ * with a threshold of zero so that every trace is kept.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tracing",
+        "tracing.slow-threshold-ms=0",
+        "security.password.bcrypt.strength=4",
+        "warmup.enabled=false",
+        "security.admin-emails=traces.admin@example.com"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(metrics = false)
+class TracingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SdkTracerProvider sdkTracerProvider;
+
+    @Autowired
+    private TailSamplingSpanExporter tailSamplingSpanExporter;
+
+    @Test
+    @DisplayName("Tracing: Should trace a request through the filter, controller, service, repository and SQL")
+    void shouldTraceEveryLayer() throws Exception {
+        // Arrange
+        JsonNode user = objectMapper.readTree(mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Traced User", "email": "traced@example.com", "password": "Password123",
+                                 "phones": [{"number": "123456789", "citycode": "2", "countrycode": "56"}]}
+                                """))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+
+        // Act
+        mockMvc.perform(get("/api/v1/users/{id}", user.get("id").asText())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + user.get("token").asText()))
+                .andExpect(status().isOk());
+        sdkTracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+
+        // Assert
+        List<String> created = spanNames("http post /api/v1/users");
+        assertTrue(created.contains("user-controller#create-user"), created::toString);
+        assertTrue(created.contains("user-service-impl#create-user"), created::toString);
+        assertTrue(created.contains("password.encode"), created::toString);
+        assertTrue(created.contains("user-repository#save-and-flush"), created::toString);
+        assertFalse(created.contains("phone-repository#save-all"), created::toString);
+        assertTrue(created.contains("query"), created::toString);
+
+        List<String> read = spanNames("http get /api/v1/users/{id}");
+        assertTrue(read.contains("jwt.authentication"), read::toString);
+        assertTrue(read.contains("user-service-impl#get-user-by-id"), read::toString);
+    }
+
+    @Test
+    @DisplayName("Tracing: Should only serve the traces and flight recordings to an admin")
+    void shouldRequireAdminForTraces() throws Exception {
+        // Arrange
+        String userToken = signUp("traces.user@example.com");
+        String adminToken = signUp("traces.admin@example.com");
+
+        // Act & Assert
+        mockMvc.perform(get("/actuator/traces")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/traces").header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/traces").header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/jfr").header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/jfr").header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken))
+                .andExpect(status().isNotFound());
+    }
+
+    private String signUp(String email) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Traces User", "email": "%s", "password": "Password123",
+                                 "phones": [{"number": "123456789", "citycode": "2", "countrycode": "56"}]}
+                                """.formatted(email)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("token").asText();
+    }
+
+    private List<String> spanNames(String rootName) {
+        return tailSamplingSpanExporter.traces().stream()
+                .filter(trace -> rootName.equals(trace.name()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No trace named " + rootName))
+                .spans().stream()
+                .map(TailSamplingSpanExporter.Span::name)
+                .toList();
+    }
+}
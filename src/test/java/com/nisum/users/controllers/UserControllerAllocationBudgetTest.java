@@ -0,0 +1,202 @@
+package com.nisum.users.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.config.JwtAuthenticationFilter;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.entities.User;
+import com.nisum.users.service.UserService;
+import com.nisum.users.utils.AllocationBudget;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Allocation budget tests for the UserController endpoints, the JwtAuthenticationFilter and the Jackson
+ * mappings of the request and response bodies. Every test runs its operation many times to warm up the
+ * JIT compiler, then measures the bytes allocated per run on the test thread and compares them with the
+ * budget checked in under {@code src/test/resources/allocation-budgets}, so a change that adds
+ * allocations to a hot path fails the build. The breakdown of every operation is printed once the tests
+ * have run.
+ * <p>
+ * The tests run against their own in-memory database with a low BCrypt work factor, so logins and
+ * creations cost milliseconds and the measurements reflect the request handling rather than hashing.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:allocation-budget",
+        "security.password.bcrypt.strength=4",
+        "warmup.enabled=false"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserControllerAllocationBudgetTest {
+
+    private static final int WARMUP = 1_000;
+    private static final int ITERATIONS = 500;
+
+    private final AllocationBudget budget = new AllocationBudget("user-controller",
+            "Median bytes allocated per run on the request thread, after " + WARMUP + " warm-up runs");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Autowired
+    private UserService userService;
+
+    private String userId;
+    private String token;
+    private int created;
+
+    @BeforeAll
+    void createFixtureUsers() throws Exception {
+        JsonNode user = objectMapper.readTree(postUser("allocation.fixture@example.com")
+                .andReturn().getResponse().getContentAsString());
+        userId = user.get("id").asText();
+        token = user.get("token").asText();
+
+        postUser("allocation.login@example.com");
+    }
+
+    @AfterAll
+    void printBreakdown() {
+        budget.finish();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("JwtAuthenticationFilter stays within its allocation budget for a valid token")
+    void authenticateValidToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/" + userId);
+        request.addHeader(HttpHeaders.AUTHORIZATION, bearer());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        budget.assertWithin("jwt-filter-valid-token", WARMUP, ITERATIONS, () -> {
+            jwtAuthenticationFilter.doFilter(request, response, (req, res) -> {
+            });
+            SecurityContextHolder.clearContext();
+        });
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("JwtAuthenticationFilter stays within its allocation budget for an invalid token")
+    void rejectInvalidToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/" + userId);
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer invalid");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        budget.assertWithin("jwt-filter-invalid-token", WARMUP, ITERATIONS, () ->
+                jwtAuthenticationFilter.doFilter(request, response, (req, res) -> {
+                }));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Jackson stays within its allocation budget writing a user and reading a creation")
+    void mapBodies() throws Exception {
+        User user = userService.getUserById(UUID.fromString(userId));
+        byte[] body = createBody("allocation.jackson@example.com").getBytes(StandardCharsets.UTF_8);
+
+        budget.assertWithin("jackson-write-user", WARMUP, ITERATIONS, () -> objectMapper.writeValueAsBytes(user));
+        budget.assertWithin("jackson-read-create-user", WARMUP, ITERATIONS, () -> objectMapper.readValue(body, UserCreateDTO.class));
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("GET /api/v1/users/{id} stays within its allocation budget")
+    void getUserById() throws Exception {
+        budget.assertWithin("get-user-by-id", WARMUP, ITERATIONS, () ->
+                mockMvc.perform(get("/api/v1/users/{id}", userId).header(HttpHeaders.AUTHORIZATION, bearer()))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("GET /api/v1/users stays within its allocation budget")
+    void getUsersPage() throws Exception {
+        budget.assertWithin("get-users-page", WARMUP, ITERATIONS, () ->
+                mockMvc.perform(get("/api/v1/users").param("limit", "2").header(HttpHeaders.AUTHORIZATION, bearer()))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("PATCH /api/v1/users/{id} stays within its allocation budget")
+    void updateUser() throws Exception {
+        budget.assertWithin("update-user", WARMUP, ITERATIONS, () ->
+                mockMvc.perform(patch("/api/v1/users/{id}", userId)
+                                .header(HttpHeaders.AUTHORIZATION, bearer())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\": \"Allocation Renamed\"}"))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("POST /api/v1/users stays within its allocation budget")
+    void createUser() throws Exception {
+        budget.assertWithin("create-user", WARMUP, ITERATIONS, () ->
+                postUser("allocation.created." + created++ + "@example.com"));
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("POST /api/v1/users/login stays within its allocation budget")
+    void loginUser() throws Exception {
+        budget.assertWithin("login-user", WARMUP, ITERATIONS, () ->
+                mockMvc.perform(post("/api/v1/users/login")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"email\": \"allocation.login@example.com\", \"password\": \"Password123\"}"))
+                        .andExpect(status().isOk()));
+    }
+
+    private ResultActions postUser(String email) throws Exception {
+        return mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createBody(email)))
+                .andExpect(status().isCreated());
+    }
+
+    private static String createBody(String email) {
+        return """
+                {
+                  "name": "Allocation User",
+                  "email": "%s",
+                  "password": "Password123",
+                  "phones": [{"number": "123456789", "citycode": "2", "countrycode": "56"}]
+                }
+                """.formatted(email);
+    }
+
+    private String bearer() {
+        return "Bearer " + token;
+    }
+}
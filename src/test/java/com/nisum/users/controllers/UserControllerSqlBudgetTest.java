@@ -0,0 +1,183 @@
+package com.nisum.users.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nisum.users.utils.SqlBudget;
+import com.nisum.users.utils.SqlStatementRecorder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statement budget tests for the UserController endpoints and the JwtAuthenticationFilter.
+ * Every test records the statements Hibernate prepares while serving one request and compares them
+ * with the budget checked in under {@code src/test/resources/sql-budgets}, so a change that adds
+ * round-trips fails the build with a diff of the statements that changed.
+ * <p>
+ * The tests run against their own in-memory database, seeded with the admin user and the two users
+ * created before the tests. The list endpoint runs first so the number of users it
+ * loads is fixed. The scheduled tasks are turned off, so only the statements of the request are
+ * recorded.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sql-budget",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.nisum.users.utils.SqlStatementRecorder",
+        "scheduling.enabled=false"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserControllerSqlBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String userId;
+    private String token;
+
+    @BeforeAll
+    void createFixtureUsers() throws Exception {
+        JsonNode user = objectMapper.readTree(postUser("budget.fixture@example.com")
+                .andReturn().getResponse().getContentAsString());
+        userId = user.get("id").asText();
+        token = user.get("token").asText();
+
+        postUser("budget.login@example.com");
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("GET /api/v1/users stays within its SQL budget")
+    void getAllUsers() throws Exception {
+        SqlStatementRecorder.reset();
+        mockMvc.perform(get("/api/v1/users").header(HttpHeaders.AUTHORIZATION, bearer()))
+                .andExpect(status().isOk());
+        SqlBudget.assertMatches("get-all-users", "GET /api/v1/users with 3 stored users", SqlStatementRecorder.statements());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("GET /api/v1/users/{id} stays within its SQL budget")
+    void getUserById() throws Exception {
+        SqlStatementRecorder.reset();
+        mockMvc.perform(get("/api/v1/users/{id}", userId).header(HttpHeaders.AUTHORIZATION, bearer()))
+                .andExpect(status().isOk());
+        SqlBudget.assertMatches("get-user-by-id", "GET /api/v1/users/{id}", SqlStatementRecorder.statements());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("GET /api/v1/users/export stays within its SQL budget")
+    void exportUsers() throws Exception {
+        SqlStatementRecorder.reset();
+        MvcResult result = mockMvc.perform(get("/api/v1/users/export").header(HttpHeaders.AUTHORIZATION, bearer()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        SqlBudget.assertMatches("export-users", "GET /api/v1/users/export", SqlStatementRecorder.statements());
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("PATCH /api/v1/users/{id} stays within its SQL budget")
+    void updateUser() throws Exception {
+        SqlStatementRecorder.reset();
+        mockMvc.perform(patch("/api/v1/users/{id}", userId)
+                        .header(HttpHeaders.AUTHORIZATION, bearer())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Budget Renamed\"}"))
+                .andExpect(status().isOk());
+        SqlBudget.assertMatches("update-user", "PATCH /api/v1/users/{id} changing the name", SqlStatementRecorder.statements());
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("POST /api/v1/users stays within its SQL budget")
+    void createUser() throws Exception {
+        SqlStatementRecorder.reset();
+        postUser("budget.created@example.com");
+        SqlBudget.assertMatches("create-user", "POST /api/v1/users with one phone", SqlStatementRecorder.statements());
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("POST /api/v1/users/login stays within its SQL budget")
+    void loginUser() throws Exception {
+        SqlStatementRecorder.reset();
+        mockMvc.perform(post("/api/v1/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"budget.login@example.com\", \"password\": \"Password123\"}"))
+                .andExpect(status().isOk());
+        SqlBudget.assertMatches("login-user", "POST /api/v1/users/login", SqlStatementRecorder.statements());
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("JwtAuthenticationFilter rejects an invalid token without touching the database")
+    void rejectInvalidToken() throws Exception {
+        SqlStatementRecorder.reset();
+        mockMvc.perform(get("/api/v1/users/{id}", userId).header(HttpHeaders.AUTHORIZATION, "Bearer invalid"))
+                .andExpect(status().isForbidden());
+        SqlBudget.assertMatches("invalid-token", "GET /api/v1/users/{id} with an invalid token", SqlStatementRecorder.statements());
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("POST /api/v1/users with several phones batches the phone inserts")
+    void createUserWithPhones() throws Exception {
+        SqlStatementRecorder.reset();
+        mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                  "name": "Budget User",
+                                  "email": "budget.phones@example.com",
+                                  "password": "Password123",
+                                  "phones": [
+                                    {"number": "123456789", "citycode": "2", "countrycode": "56"},
+                                    {"number": "987654321", "citycode": "2", "countrycode": "56"},
+                                    {"number": "555555555", "citycode": "9", "countrycode": "56"}
+                                  ]
+                                }
+                                """))
+                .andExpect(status().isCreated());
+        SqlBudget.assertMatches("create-user-with-phones", "POST /api/v1/users with three phones", SqlStatementRecorder.statements());
+    }
+
+    private ResultActions postUser(String email) throws Exception {
+        return mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                  "name": "Budget User",
+                                  "email": "%s",
+                                  "password": "Password123",
+                                  "phones": [{"number": "123456789", "citycode": "2", "countrycode": "56"}]
+                                }
+                                """.formatted(email)))
+                .andExpect(status().isCreated());
+    }
+
+    private String bearer() {
+        return "Bearer " + token;
+    }
+}
@@ -0,0 +1,100 @@
+package com.nisum.users.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the access rules of the user endpoints that go beyond authentication.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-controller",
+        "security.password.bcrypt.strength=4",
+        "warmup.enabled=false",
+        "security.admin-emails=users.admin@example.com"
+})
+@AutoConfigureMockMvc
+class UserControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("Users: Should not replay a creation to a retry with another password")
+    void shouldRejectIdempotentReplayWithAnotherPassword() throws Exception {
+        // Arrange
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "replayed-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(signUpBody("replayed@example.com", "Password123")))
+                .andExpect(status().isCreated());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "replayed-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(signUpBody("replayed@example.com", "Guessed123")))
+                .andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "replayed-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(signUpBody("replayed@example.com", "Password123")))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @DisplayName("Users: Should only let users update themselves, unless they are admins")
+    void shouldRejectUpdatesOfOtherUsers() throws Exception {
+        // Arrange
+        JsonNode owner = signUp("owner@example.com");
+        JsonNode intruder = signUp("intruder@example.com");
+        JsonNode admin = signUp("users.admin@example.com");
+        String update = "{\"name\": \"Renamed User\"}";
+
+        // Act & Assert
+        mockMvc.perform(patch("/api/v1/users/{id}", owner.get("id").asText())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + intruder.get("token").asText())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"intruder.owned@example.com\"}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(patch("/api/v1/users/{id}", owner.get("id").asText())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + owner.get("token").asText())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/api/v1/users/{id}", owner.get("id").asText())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + admin.get("token").asText())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update))
+                .andExpect(status().isOk());
+    }
+
+    private JsonNode signUp(String email) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(signUpBody(email, "Password123")))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static String signUpBody(String email, String password) {
+        return """
+                {"name": "Controller User", "email": "%s", "password": "%s",
+                 "phones": [{"number": "123456789", "citycode": "2", "countrycode": "56"}]}
+                """.formatted(email, password);
+    }
+}
@@ -0,0 +1,83 @@
+package com.nisum.users.exceptions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark of the per-request cost of a 404 response, comparing the previous error path, a new
+ * exception with a full stack trace and a fresh map serialized by Jackson, with the stackless shared
+ * exception rendered to a cached body. Exceptions are thrown from a deep call stack, as they are
+ * under the servlet and Spring MVC frames, and the allocation is read from the thread allocation counter.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ErrorResponseBenchmarkTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int MEASURED = 200_000;
+    private static final int STACK_DEPTH = 120;
+    private static final NotFoundException SHARED = new NotFoundException("Invalid email or password");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler(objectMapper);
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private long sink;
+
+    @Test
+    @DisplayName("Benchmark: 404 error response allocation and latency before and after")
+    void benchmarkErrorResponses() {
+        Supplier<byte[]> before = () -> {
+            try {
+                throw atDepth(STACK_DEPTH, () -> new RuntimeException("Invalid email or password"));
+            } catch (RuntimeException e) {
+                Map<String, String> body = new HashMap<>();
+                body.put("error", "Not Found");
+                body.put("message", e.getMessage());
+                try {
+                    return objectMapper.writeValueAsBytes(body);
+                } catch (Exception serializationFailure) {
+                    throw new IllegalStateException(serializationFailure);
+                }
+            }
+        };
+        Supplier<byte[]> after = () -> {
+            try {
+                throw atDepth(STACK_DEPTH, () -> SHARED);
+            } catch (NotFoundException e) {
+                return handler.handleNotFoundException(e).getBody();
+            }
+        };
+
+        measure("warmup before", before, WARMUP);
+        measure("warmup after", after, WARMUP);
+        measure("before", before, MEASURED);
+        measure("after", after, MEASURED);
+    }
+
+    private void measure(String name, Supplier<byte[]> request, int iterations) {
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += request.get().length;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        if (!name.startsWith("warmup")) {
+            System.out.printf("%-6s %8.0f ns/request %8d bytes/request%n",
+                    name, (double) elapsed / iterations, allocated / iterations);
+        }
+    }
+
+    private static RuntimeException atDepth(int depth, Supplier<RuntimeException> exception) {
+        return depth == 0 ? exception.get() : atDepth(depth - 1, exception);
+    }
+}
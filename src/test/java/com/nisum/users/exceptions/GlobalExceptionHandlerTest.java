@@ -0,0 +1,85 @@
+package com.nisum.users.exceptions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the GlobalExceptionHandler class, checking the JSON bodies rendered for each error
+ * and that bodies with a fixed message are reused across responses.
+ */
+class GlobalExceptionHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler(objectMapper);
+
+    @Test
+    @DisplayName("Not found: Should render the message and reuse the body")
+    void shouldRenderAndReuseNotFoundBody() throws Exception {
+        // Act
+        ResponseEntity<byte[]> first = handler.handleNotFoundException(new NotFoundException("User not found"));
+        ResponseEntity<byte[]> second = handler.handleNotFoundException(new NotFoundException("User not found"));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, first.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, first.getHeaders().getContentType());
+        JsonNode body = objectMapper.readTree(first.getBody());
+        assertEquals("Not Found", body.get("error").asText());
+        assertEquals("User not found", body.get("message").asText());
+        assertSame(first.getBody(), second.getBody());
+    }
+
+    @Test
+    @DisplayName("Conflict: Should render the email conflict without a stack trace")
+    void shouldRenderConflictWithoutStackTrace() throws Exception {
+        // Arrange
+        EmailAlreadyExistsException exception = new EmailAlreadyExistsException();
+
+        // Act
+        ResponseEntity<byte[]> response = handler.handleEmailAlreadyExistsException(exception);
+
+        // Assert
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("Email already exists", objectMapper.readTree(response.getBody()).get("message").asText());
+    }
+
+    @Test
+    @DisplayName("Validation: Should render one message per field, keeping the last one")
+    void shouldRenderValidationErrors() throws Exception {
+        // Arrange
+        BindingResult bindingResult = new BeanPropertyBindingResult(new Object(), "userCreateDTO");
+        bindingResult.addError(new FieldError("userCreateDTO", "email", "must be a well-formed email address"));
+        bindingResult.addError(new FieldError("userCreateDTO", "password", "is too short"));
+        bindingResult.addError(new FieldError("userCreateDTO", "email", "must not be blank"));
+        MethodArgumentNotValidException exception = new MethodArgumentNotValidException(
+                new MethodParameter(getClass().getDeclaredMethod("target", String.class), 0), bindingResult);
+
+        // Act
+        ResponseEntity<byte[]> response = handler.handleValidationExceptions(exception);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertEquals("Bad Request", body.get("error").asText());
+        assertEquals(2, body.get("fieldErrors").size());
+        assertEquals("must not be blank", body.get("fieldErrors").get("email").asText());
+        assertEquals("is too short", body.get("fieldErrors").get("password").asText());
+        assertEquals("email", body.get("fieldErrors").fieldNames().next());
+    }
+
+    @SuppressWarnings("unused")
+    private void target(String value) {
+    }
+}
@@ -0,0 +1,145 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.entities.User;
+import com.nisum.users.service.UserService;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmark of the phone mapping before and after phones held the foreign key to their user. The join
+ * table mapping no longer exists as entities, so both layouts are compared by replaying, over JDBC with
+ * batching, the statements Hibernate issued for each: the join table layout inserts the phones, the user
+ * and one link per phone, and reads the phones through the join table; the owned layout inserts the user
+ * and its phones, and reads the phones by their foreign key. Each layout runs in its own database, migrated
+ * to the version that introduced it. The throughput of createUser and getUserById through the service is
+ * printed alongside, for the owned mapping.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:phone-benchmark",
+        "security.password.bcrypt.strength=4",
+        "warmup.enabled=false",
+        "email-index.enabled=false"
+})
+class PhoneMappingBenchmarkTest {
+
+    private static final int USERS = 20_000;
+    private static final int PHONES = 3;
+    private static final int READS = 100_000;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    @DisplayName("Benchmark: phone inserts and reads with a join table and with an owned foreign key")
+    void benchmarkPhoneMapping() {
+        JdbcTemplate joinTable = migrate("phone-join-table", "4");
+        JdbcTemplate owned = migrate("phone-owned", "5");
+
+        List<UUID> joinTableUsers = insert("join table", joinTable, (jdbc, user, phones) -> {
+            jdbc.batchUpdate("insert into phone (id, number, city_code, country_code) values (?, '123456789', '2', '56')",
+                    phones.stream().map(phone -> new Object[]{phone}).toList());
+            insertUser(jdbc, user);
+            jdbc.batchUpdate("insert into app_user_phones (app_user_id, phones_id) values (?, ?)",
+                    phones.stream().map(phone -> new Object[]{user, phone}).toList());
+        });
+        List<UUID> ownedUsers = insert("owned", owned, (jdbc, user, phones) -> {
+            insertUser(jdbc, user);
+            jdbc.batchUpdate("insert into phone (id, user_id, number, city_code, country_code) values (?, ?, '123456789', '2', '56')",
+                    phones.stream().map(phone -> new Object[]{phone, user}).toList());
+        });
+
+        read("join table", joinTable, joinTableUsers, "select p.id, p.number, p.city_code, p.country_code "
+                + "from app_user_phones l join phone p on p.id = l.phones_id where l.app_user_id = ?");
+        read("owned", owned, ownedUsers, "select id, number, city_code, country_code from phone where user_id = ?");
+
+        benchmarkService();
+    }
+
+    private void benchmarkService() {
+        List<PhoneDTO> phones = IntStream.range(0, PHONES).mapToObj(i -> new PhoneDTO("12345678" + i, "2", "56")).toList();
+        List<UUID> ids = new ArrayList<>(USERS);
+        long start = System.nanoTime();
+        for (int i = 0; i < USERS; i++) {
+            UserCreateDTO userCreateDTO = new UserCreateDTO();
+            userCreateDTO.setName("Benchmark User");
+            userCreateDTO.setEmail("phones." + i + "@example.com");
+            userCreateDTO.setPassword("Password123");
+            userCreateDTO.setPhones(phones);
+            ids.add(userService.createUser(userCreateDTO).getId());
+        }
+        double createRate = USERS / ((System.nanoTime() - start) / 1e9);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            User user = userService.getUserById(ids.get(random.nextInt(USERS)));
+            if (user.getPhones().size() != PHONES) throw new IllegalStateException("Missing phones for " + user.getId());
+        }
+        double readRate = READS / ((System.nanoTime() - start) / 1e9);
+
+        System.out.printf("service: createUser with %d phones %.0f ops/s, getUserById %.0f ops/s%n", PHONES, createRate, readRate);
+    }
+
+    private static JdbcTemplate migrate(String database, String version) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).target(MigrationVersion.fromVersion(version)).load().migrate();
+        return new JdbcTemplate(dataSource);
+    }
+
+    private static List<UUID> insert(String layout, JdbcTemplate jdbc, UserInsert insert) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
+        List<UUID> users = new ArrayList<>(USERS);
+        long start = System.nanoTime();
+        for (int i = 0; i < USERS; i++) {
+            UUID user = UUID.randomUUID();
+            List<UUID> phones = IntStream.range(0, PHONES).mapToObj(p -> UUID.randomUUID()).toList();
+            transaction.executeWithoutResult(status -> insert.run(jdbc, user, phones));
+            users.add(user);
+        }
+        double rate = USERS / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("%s: insert a user with %d phones %.0f ops/s%n", layout, PHONES, rate);
+        return users;
+    }
+
+    private static void read(String layout, JdbcTemplate jdbc, List<UUID> users, String sql) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            if (jdbc.queryForList(sql, users.get(random.nextInt(users.size()))).size() != PHONES) {
+                throw new IllegalStateException(layout + ": missing phones");
+            }
+        }
+        double rate = READS / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("%s: read the phones of a user %.0f ops/s%n", layout, rate);
+    }
+
+    private static void insertUser(JdbcTemplate jdbc, UUID user) {
+        jdbc.update("insert into app_user (id, name, email, password, is_active, version) values (?, 'Benchmark User', ?, 'x', true, 0)",
+                user, user + "@example.com");
+    }
+
+    @FunctionalInterface
+    private interface UserInsert {
+        void run(JdbcTemplate jdbc, UUID user, List<UUID> phones);
+    }
+}
@@ -0,0 +1,106 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.entities.User;
+import com.nisum.users.service.UserService;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the versioned schema migrations against the entity mappings: the schema is created by
+ * Flyway only and Hibernate validates it on startup, as in the production profile.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schema-migration",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "security.password.bcrypt.strength=4",
+        "warmup.enabled=false"
+})
+class SchemaMigrationTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Migrations: Should create a schema matching the entity mappings")
+    void shouldMigrateSchemaMatchingTheMappings() {
+        // Arrange
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Migrated User");
+        userCreateDTO.setEmail("migrated@example.com");
+        userCreateDTO.setPassword("Password123");
+        userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "2", "56")));
+
+        // Act
+        User user = userService.createUser(userCreateDTO);
+
+        // Assert
+        assertEquals(0, flyway.info().pending().length);
+        assertEquals(user.getId(), userRepository.findByEmail("migrated@example.com").orElseThrow().getId());
+    }
+
+    @Test
+    @DisplayName("Migrations: Should index the columns used by the hot queries")
+    void shouldCreateIndexes() {
+        // Act
+        List<String> indexes = jdbcTemplate.queryForList(
+                "select index_name from information_schema.indexes where table_schema = 'PUBLIC'", String.class);
+
+        // Assert
+        assertTrue(indexes.stream().anyMatch(name -> name.startsWith("UK_APP_USER_EMAIL")));
+        assertTrue(indexes.contains("IX_OUTBOX_EVENT_OCCURRED_AT"));
+        assertTrue(indexes.contains("IX_INVALIDATION_EVENT_CREATED_AT"));
+        assertTrue(indexes.contains("IX_APP_USER_UPDATED_AT"));
+        assertTrue(indexes.contains("IX_IDEMPOTENCY_RECORD_EXPIRES_AT"));
+        assertTrue(indexes.contains("IX_APP_USER_LAST_LOGIN"));
+        assertTrue(indexes.contains("IX_ARCHIVED_PHONE_USER_ID"));
+        assertTrue(indexes.contains("IX_PHONE_USER_ID"));
+    }
+
+    @Test
+    @DisplayName("Migrations: Should move the phone links of existing users onto the phone rows")
+    void shouldMigratePhoneLinks() {
+        // Arrange
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:phone-migration;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        Flyway.configure().dataSource(dataSource).target(MigrationVersion.fromVersion("4")).load().migrate();
+        UUID userId = UUID.randomUUID();
+        UUID linkedPhone = UUID.randomUUID();
+        UUID orphanPhone = UUID.randomUUID();
+        legacy.update("insert into app_user (id, name, email, password, is_active, version) values (?, 'Legacy', 'legacy@example.com', 'x', true, 0)", userId);
+        legacy.update("insert into phone (id, number, city_code, country_code) values (?, '123456789', '2', '56')", linkedPhone);
+        legacy.update("insert into phone (id, number, city_code, country_code) values (?, '987654321', '2', '56')", orphanPhone);
+        legacy.update("insert into app_user_phones (app_user_id, phones_id) values (?, ?)", userId, linkedPhone);
+
+        // Act
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        // Assert
+        assertEquals(List.of(linkedPhone), legacy.queryForList("select id from phone where user_id = ?", UUID.class, userId));
+        assertEquals(1, legacy.queryForObject("select count(*) from phone", Integer.class));
+        assertEquals(0, legacy.queryForObject(
+                "select count(*) from information_schema.tables where table_name = 'APP_USER_PHONES'", Integer.class));
+    }
+}
@@ -0,0 +1,206 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.dto.UserLoginDTO;
+import com.nisum.users.dto.UserUpdateDTO;
+import com.nisum.users.entities.User;
+import com.nisum.users.exceptions.EmailAlreadyExistsException;
+import com.nisum.users.service.UserService;
+import com.nisum.users.utils.ShardRouter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests of the hash-sharded persistence, running against four in-memory H2 databases.
+ * Users created through the service must be spread over the shards, be found by id and by email,
+ * and be listed through the merged keyset pagination, including users whose email changed to one
+ * routed to another shard. Emails are claimed on their home shard, so a user stored on another shard
+ * cannot take an email already claimed there, and the seeded admin claims its email like any other user.
+ */
+@SpringBootTest(properties = {
+        "sharding.enabled=true",
+        "sharding.urls=jdbc:h2:mem:shard-test-0,jdbc:h2:mem:shard-test-1,jdbc:h2:mem:shard-test-2,jdbc:h2:mem:shard-test-3",
+        "security.password.bcrypt.strength=4",
+        "warmup.enabled=false"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ShardedUserRepositoryTest {
+
+    private static final int USERS = 40;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ShardedUserRepository shardedUserRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailClaimRepository emailClaimRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private final List<User> created = new ArrayList<>();
+
+    @BeforeAll
+    void createUsers() {
+        for (int i = 0; i < USERS; i++) {
+            created.add(userService.createUser(userCreateDTO("sharded." + i + "@example.com")));
+        }
+    }
+
+    @Test
+    @DisplayName("Sharding: Should store every user on the home shard of its email")
+    void shouldStoreUsersOnTheirHomeShard() {
+        // Act
+        List<Long> counts = shardRouter.scatter(shard -> userRepository.count());
+
+        // Assert
+        assertEquals(4, counts.size());
+        assertTrue(counts.stream().filter(count -> count > 0).count() > 1, "Users should be spread over the shards");
+        for (User user : created) {
+            assertEquals(shardRouter.shardOf(user.getEmail()), shardRouter.shardOf(user.getId()));
+        }
+    }
+
+    @Test
+    @DisplayName("Sharding: Should find users by id and by email")
+    void shouldFindUsersByIdAndEmail() {
+        for (User user : created) {
+            // Act
+            User byId = userService.getUserById(user.getId());
+
+            // Assert
+            assertEquals(user.getEmail(), byId.getEmail());
+            assertEquals(1, byId.getPhones().size());
+            assertTrue(shardedUserRepository.findByEmail(user.getEmail()).isPresent());
+        }
+    }
+
+    @Test
+    @DisplayName("Sharding: Should page through the users of every shard in id order")
+    void shouldPageThroughEveryShard() {
+        // Arrange
+        List<UUID> expected = userService.getUsers().stream()
+                .map(User::getId)
+                .sorted(ShardedUserRepository.ID_ORDER)
+                .toList();
+        List<UUID> paged = new ArrayList<>();
+
+        // Act
+        UUID after = null;
+        List<User> page;
+        do {
+            page = userService.getUsers(after, 7);
+            page.forEach(user -> paged.add(user.getId()));
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == 7);
+
+        // Assert
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    @DisplayName("Sharding: Should log in a user whose email moved to another shard")
+    void shouldLoginUserWithChangedEmail() {
+        // Arrange
+        User user = userService.createUser(userCreateDTO("moving@example.com"));
+        String newEmail = emailOnAnotherShard(user.getEmail());
+        UserUpdateDTO userUpdateDTO = new UserUpdateDTO();
+        userUpdateDTO.setEmail(newEmail);
+        userService.updateUser(user.getId(), userUpdateDTO);
+
+        UserLoginDTO userLoginDTO = new UserLoginDTO();
+        userLoginDTO.setEmail(newEmail);
+        userLoginDTO.setPassword("Password123");
+
+        // Act
+        User loggedIn = userService.login(userLoginDTO);
+
+        // Assert
+        assertEquals(user.getId(), loggedIn.getId());
+        assertEquals(newEmail, loggedIn.getEmail());
+        assertEquals(newEmail, shardedUserRepository.findByEmail(newEmail).orElseThrow().getEmail());
+    }
+
+    @Test
+    @DisplayName("Sharding: Should reject an email claimed on its home shard by a user stored elsewhere")
+    void shouldRejectEmailClaimedOnAnotherShard() {
+        // Arrange
+        User user = userService.createUser(userCreateDTO("claiming@example.com"));
+        String claimed = emailOnAnotherShard(user.getEmail());
+        UUID claimant = UUID.randomUUID();
+        shardRouter.inTransaction(shardRouter.shardOf(claimed), false, () -> {
+            emailClaimRepository.insert(claimed, claimant);
+            return null;
+        });
+        UserUpdateDTO userUpdateDTO = new UserUpdateDTO();
+        userUpdateDTO.setEmail(claimed);
+
+        // Act & Assert
+        assertThrows(EmailAlreadyExistsException.class, () -> userService.updateUser(user.getId(), userUpdateDTO));
+        assertThrows(EmailAlreadyExistsException.class, () -> userService.createUser(userCreateDTO(claimed)));
+        assertEquals(user.getEmail(), userService.getUserById(user.getId()).getEmail());
+    }
+
+    @Test
+    @DisplayName("Sharding: Should move the claim of a changed email to the home shard of the new email")
+    void shouldMoveEmailClaim() {
+        // Arrange
+        User user = userService.createUser(userCreateDTO("reclaiming@example.com"));
+        String newEmail = emailOnAnotherShard(user.getEmail());
+        UserUpdateDTO userUpdateDTO = new UserUpdateDTO();
+        userUpdateDTO.setEmail(newEmail);
+
+        // Act
+        userService.updateUser(user.getId(), userUpdateDTO);
+
+        // Assert
+        assertTrue(shardRouter.onShard(shardRouter.shardOf(newEmail), () -> emailClaimRepository.existsById(newEmail)));
+        assertFalse(shardRouter.onShard(shardRouter.shardOf(user.getEmail()), () -> emailClaimRepository.existsById(user.getEmail())));
+        assertDoesNotThrow(() -> userService.createUser(userCreateDTO(user.getEmail())));
+    }
+
+    @Test
+    @DisplayName("Sharding: Should claim the email of the seeded admin on its home shard")
+    void shouldClaimSeededAdminEmail() {
+        // Act
+        User admin = shardedUserRepository.findByEmail("admin@example.com").orElseThrow();
+
+        // Assert
+        assertTrue(shardRouter.onShard(shardRouter.shardOf(admin.getEmail()),
+                () -> emailClaimRepository.existsById(admin.getEmail())));
+        assertThrows(EmailAlreadyExistsException.class, () -> userService.createUser(userCreateDTO(admin.getEmail())));
+    }
+
+    private String emailOnAnotherShard(String email) {
+        int shard = shardRouter.shardOf(email);
+        for (int i = 0; ; i++) {
+            String candidate = email.substring(0, email.indexOf('@')) + ".moved." + i + "@example.com";
+            if (shardRouter.shardOf(candidate) != shard) return candidate;
+        }
+    }
+
+    private UserCreateDTO userCreateDTO(String email) {
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Sharded User");
+        userCreateDTO.setEmail(email);
+        userCreateDTO.setPassword("Password123");
+        userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "2", "56")));
+        return userCreateDTO;
+    }
+}
@@ -0,0 +1,121 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.UsersApplication;
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.entities.User;
+import com.nisum.users.service.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmark of createUser and getUserById throughput as the number of shards grows. Each shard count
+ * runs in its own application context against its own in-memory H2 databases, with several client
+ * threads, and BCrypt at its lowest strength so the database work dominates.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ShardingBenchmarkTest {
+
+    private static final int[] SHARD_COUNTS = {1, 2, 4};
+    private static final int THREADS = 8;
+    private static final int USERS_PER_THREAD = 1_000;
+
+    @Test
+    @DisplayName("Benchmark: createUser and getUserById throughput by shard count")
+    void benchmarkShardCounts() throws Exception {
+        for (int shards : SHARD_COUNTS) {
+            try (ConfigurableApplicationContext context = start(shards)) {
+                UserService userService = context.getBean(UserService.class);
+                run(userService, "warmup-" + shards, USERS_PER_THREAD / 4);
+
+                long start = System.nanoTime();
+                List<UUID> ids = run(userService, "bench-" + shards, USERS_PER_THREAD);
+                double createRate = ids.size() / ((System.nanoTime() - start) / 1e9);
+
+                start = System.nanoTime();
+                read(userService, ids);
+                double readRate = ids.size() / ((System.nanoTime() - start) / 1e9);
+
+                System.out.printf("%d shard(s): createUser %.0f ops/s, getUserById %.0f ops/s%n",
+                        shards, createRate, readRate);
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(int shards) {
+        String urls = IntStream.range(0, shards)
+                .mapToObj(shard -> "jdbc:h2:mem:shard-bench-" + shards + "-" + shard)
+                .collect(Collectors.joining(","));
+        return new SpringApplicationBuilder(UsersApplication.class)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:shard-bench-" + shards + "-0",
+                        "sharding.enabled=" + (shards > 1),
+                        "sharding.urls=" + urls,
+                        "server.port=0",
+                        "warmup.enabled=false",
+                        "security.password.bcrypt.strength=4")
+                .run();
+    }
+
+    private List<UUID> run(UserService userService, String prefix, int usersPerThread) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<List<UUID>>> futures = new ArrayList<>(THREADS);
+            for (int thread = 0; thread < THREADS; thread++) {
+                int client = thread;
+                futures.add(executor.submit(() -> {
+                    List<UUID> ids = new ArrayList<>(usersPerThread);
+                    for (int i = 0; i < usersPerThread; i++) {
+                        User user = userService.createUser(userCreateDTO(prefix + "." + client + "." + i + "@example.com"));
+                        ids.add(user.getId());
+                    }
+                    return ids;
+                }));
+            }
+            List<UUID> ids = new ArrayList<>(THREADS * usersPerThread);
+            for (Future<List<UUID>> future : futures) {
+                ids.addAll(future.get());
+            }
+            return ids;
+        }
+    }
+
+    private void read(UserService userService, List<UUID> ids) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int thread = 0; thread < THREADS; thread++) {
+                int client = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = client; i < ids.size(); i += THREADS) {
+                        userService.getUserById(ids.get(i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    private UserCreateDTO userCreateDTO(String email) {
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Benchmark User");
+        userCreateDTO.setEmail(email);
+        userCreateDTO.setPassword("Password123");
+        userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "2", "56")));
+        return userCreateDTO;
+    }
+}
@@ -0,0 +1,156 @@
+package com.nisum.users.repositories;
+
+import com.nisum.users.UsersApplication;
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of createUser and findByEmail throughput on a file-backed database holding
+ * {@code benchmark.rows} users (10 million by default), before and after the production profile.
+ * "Before" is the default configuration pointed at a file, with the schema generated by Hibernate,
+ * no JDBC batching and the default pool; "after" is the prod profile, with the Flyway schema, the
+ * Hibernate batch and fetch settings and the sized pool. The rows are bulk loaded through JDBC.
+ * <p>
+ * The pool size recommended for the host follows Little's law, from the connection acquisition rate
+ * and the mean time a connection is held during the measurement.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark.rows=10000000}.
+ */
+@Tag("benchmark")
+class StorageProfileBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 10_000_000);
+    private static final int LOAD_BATCH = 10_000;
+    private static final int THREADS = 16;
+    private static final int CREATES_PER_THREAD = 500;
+    private static final int LOOKUPS_PER_THREAD = 5_000;
+
+    @TempDir
+    private Path dataDir;
+
+    @Test
+    @DisplayName("Benchmark: createUser and findByEmail at scale before and after the prod profile")
+    void benchmarkStorageProfiles() throws Exception {
+        run("before", dataDir.resolve("before"),
+                "spring.jpa.hibernate.ddl-auto=update");
+        run("after", dataDir.resolve("after"),
+                "spring.profiles.active=prod");
+    }
+
+    private void run(String name, Path directory, String profileProperty) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UsersApplication.class)
+                .properties(
+                        profileProperty,
+                        "spring.datasource.url=jdbc:h2:file:" + directory.resolve("users") + ";DB_CLOSE_ON_EXIT=FALSE",
+                        "server.port=0",
+                        "warmup.enabled=false",
+                        "jwt.keystore.password=benchmark",
+                        "email-index.enabled=false",
+                        "security.password.bcrypt.strength=4")
+                .run()) {
+            long loadStart = System.nanoTime();
+            load(context.getBean(JdbcTemplate.class));
+            System.out.printf("%s: loaded %d users in %d s%n", name, ROWS,
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - loadStart));
+
+            UserService userService = context.getBean(UserService.class);
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+            double createRate = measure(THREADS * CREATES_PER_THREAD, client -> {
+                for (int i = 0; i < CREATES_PER_THREAD; i++) {
+                    userService.createUser(userCreateDTO(name + "." + client + "." + i + "@bench.example.com"));
+                }
+            });
+
+            long acquiredBefore = acquisitions(meterRegistry);
+            long start = System.nanoTime();
+            double lookupRate = measure(THREADS * LOOKUPS_PER_THREAD, client -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                    userRepository.findByEmail("loaded." + random.nextInt(ROWS) + "@example.com");
+                }
+            });
+            double acquireRate = (acquisitions(meterRegistry) - acquiredBefore) / ((System.nanoTime() - start) / 1e9);
+            Timer usage = meterRegistry.find("hikaricp.connections.usage").timer();
+            double meanHoldSeconds = usage == null ? 0 : usage.mean(TimeUnit.SECONDS);
+
+            System.out.printf("%s: createUser %.0f ops/s, findByEmail %.0f ops/s%n", name, createRate, lookupRate);
+            System.out.printf("%s: %.0f connections/s held %.3f ms on average, recommended pool size %d%n",
+                    name, acquireRate, meanHoldSeconds * 1000, (int) Math.ceil(acquireRate * meanHoldSeconds * 1.2) + 1);
+        }
+    }
+
+    private void load(JdbcTemplate jdbcTemplate) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int from = 0; from < ROWS; from += LOAD_BATCH) {
+            List<Object[]> rows = new ArrayList<>(LOAD_BATCH);
+            for (int i = from; i < Math.min(from + LOAD_BATCH, ROWS); i++) {
+                rows.add(new Object[]{UUID.randomUUID(), "Loaded User", "loaded." + i + "@example.com",
+                        "{bcrypt}$2a$04$loadedloadedloadedloadeduBxVDSYRc9l8nI6jWw8X1iw0aSTBO", now, now, now});
+            }
+            jdbcTemplate.batchUpdate("insert into app_user (id, name, email, password, is_active, created_at, "
+                    + "updated_at, last_login, version) values (?, ?, ?, ?, true, ?, ?, ?, 0)", rows);
+        }
+    }
+
+    private double measure(int operations, Client client) throws Exception {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int thread = 0; thread < THREADS; thread++) {
+                int id = thread;
+                futures.add(executor.submit(() -> {
+                    client.run(id);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return operations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static long acquisitions(MeterRegistry meterRegistry) {
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        return acquire == null ? 0 : acquire.count();
+    }
+
+    private UserCreateDTO userCreateDTO(String email) {
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Benchmark User");
+        userCreateDTO.setEmail(email);
+        userCreateDTO.setPassword("Password123");
+        userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "2", "56")));
+        return userCreateDTO;
+    }
+
+    @FunctionalInterface
+    private interface Client {
+
+        void run(int client) throws Exception;
+    }
+}
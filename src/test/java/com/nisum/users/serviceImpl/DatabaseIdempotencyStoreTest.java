@@ -0,0 +1,95 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.dto.UserCreatedDTO;
+import com.nisum.users.exceptions.InvalidIdempotencyKeyException;
+import com.nisum.users.repositories.IdempotencyRecordRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DatabaseIdempotencyStore claims keys through the primary key of the idempotency table, so duplicates
+ * arriving concurrently run the action once and read the result stored by the first request.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency",
+        "idempotency.store=database",
+        "idempotency.poll-interval-ms=10",
+        "warmup.enabled=false"
+})
+class DatabaseIdempotencyStoreTest {
+
+    @Autowired
+    private DatabaseIdempotencyStore store;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Test
+    @DisplayName("Idempotency: Should run concurrent duplicates once and return the stored result")
+    void shouldRunConcurrentDuplicatesOnce() throws Exception {
+        // Arrange
+        AtomicInteger executions = new AtomicInteger();
+        UUID id = UUID.randomUUID();
+        List<Future<UserCreatedDTO>> results = new ArrayList<>();
+
+        // Act
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> store.execute("concurrent", "body", UserCreatedDTO.class, () -> {
+                    executions.incrementAndGet();
+                    sleep(200);
+                    return UserCreatedDTO.builder().id(id).token("token").isActive(true).build();
+                })));
+            }
+
+            // Assert
+            for (Future<UserCreatedDTO> result : results) {
+                UserCreatedDTO userCreatedDTO = result.get(10, TimeUnit.SECONDS);
+                assertEquals(id, userCreatedDTO.getId());
+                assertTrue(userCreatedDTO.isActive());
+            }
+        }
+        assertEquals(1, executions.get());
+        assertNotNull(idempotencyRecordRepository.findById("concurrent").orElseThrow().getResponse());
+    }
+
+    @Test
+    @DisplayName("Idempotency: Should release the key of a failed request and reject a different request")
+    void shouldReleaseFailedKeysAndRejectDifferentRequests() {
+        // Arrange
+        assertThrows(IllegalStateException.class, () -> store.execute("failed", "body", UserCreatedDTO.class, () -> {
+            throw new IllegalStateException("failed");
+        }));
+
+        // Act
+        UserCreatedDTO userCreatedDTO = store.execute("failed", "body", UserCreatedDTO.class,
+                () -> UserCreatedDTO.builder().token("retried").build());
+
+        // Assert
+        assertEquals("retried", userCreatedDTO.getToken());
+        assertThrows(InvalidIdempotencyKeyException.class,
+                () -> store.execute("failed", "other body", UserCreatedDTO.class, UserCreatedDTO::new));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.exceptions.IdempotencyKeyInProgressException;
+import com.nisum.users.exceptions.InvalidIdempotencyKeyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InMemoryIdempotencyStore runs an action once per key, making concurrent duplicates wait for the first
+ * execution and returning its result to later ones.
+ */
+class InMemoryIdempotencyStoreTest {
+
+    private final InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(2);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(store, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(store, "waitTimeoutMs", 5_000L);
+    }
+
+    @Test
+    @DisplayName("Idempotency: Should run concurrent duplicates once and share the result")
+    void shouldRunConcurrentDuplicatesOnce() throws Exception {
+        // Arrange
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+
+        // Act
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> store.execute("key", "body", String.class, () -> {
+                    await(release);
+                    return "created-" + executions.incrementAndGet();
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            for (Future<String> result : results) {
+                assertEquals("created-1", result.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, executions.get());
+        assertEquals("created-1", store.execute("key", "body", String.class, () -> "created-again"));
+    }
+
+    @Test
+    @DisplayName("Idempotency: Should run the action again after a failure")
+    void shouldRunAgainAfterFailure() {
+        // Arrange
+        assertThrows(IllegalStateException.class, () -> store.execute("key", "body", String.class, () -> {
+            throw new IllegalStateException("failed");
+        }));
+
+        // Act
+        String result = store.execute("key", "body", String.class, () -> "created");
+
+        // Assert
+        assertEquals("created", result);
+    }
+
+    @Test
+    @DisplayName("Idempotency: Should reject a key used with a different request or too long")
+    void shouldRejectInvalidKeys() {
+        // Arrange
+        store.execute("key", "body", String.class, () -> "created");
+
+        // Act & Assert
+        assertThrows(InvalidIdempotencyKeyException.class,
+                () -> store.execute("key", "other body", String.class, () -> "created"));
+        assertThrows(InvalidIdempotencyKeyException.class,
+                () -> store.execute("k".repeat(256), "body", String.class, () -> "created"));
+    }
+
+    @Test
+    @DisplayName("Idempotency: Should give up waiting for a request still in progress")
+    void shouldTimeOutWaitingForInProgressRequest() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(store, "waitTimeoutMs", 50L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<String> first = executor.submit(() -> store.execute("key", "body", String.class, () -> {
+                started.countDown();
+                await(release);
+                return "created";
+            }));
+            started.await();
+
+            // Act & Assert
+            assertThrows(IdempotencyKeyInProgressException.class,
+                    () -> store.execute("key", "body", String.class, () -> "created"));
+            release.countDown();
+            assertEquals("created", first.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Idempotency: Should evict the oldest keys beyond the maximum and expired keys")
+    void shouldEvictOldestAndExpiredKeys() {
+        // Arrange
+        store.execute("first", "body", String.class, () -> "first");
+        store.execute("second", "body", String.class, () -> "second");
+        store.execute("third", "body", String.class, () -> "third");
+        ReflectionTestUtils.setField(store, "ttlMs", -1L);
+        store.execute("expired", "body", String.class, () -> "expired");
+
+        // Act
+        String first = store.execute("first", "body", String.class, () -> "first again");
+        String expired = store.execute("expired", "body", String.class, () -> "expired again");
+
+        // Assert
+        assertEquals("first again", first);
+        assertEquals("expired again", expired);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.UsersApplication;
+import com.nisum.users.dto.InvalidationMessage;
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.service.UserService;
+import com.nisum.users.utils.EmailIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Multi-instance integration test of the invalidation buses. Several application contexts are started
+ * in the same JVM, sharing one in-memory database, and a user created on the first node must be
+ * announced to every other node. The time each node took to receive the invalidation is printed.
+ * The node settings are passed as command line arguments, since default properties would lose to
+ * application.properties.
+ */
+class InvalidationBusIntegrationTest {
+
+    private static final int NODES = 3;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"loopback", "database"})
+    @DisplayName("Invalidation: Should propagate a created user to every node")
+    void shouldPropagateInvalidationToEveryNode(String bus) throws InterruptedException {
+        // Arrange
+        String email = "invalidation." + bus + "@example.com";
+        AtomicLongArray receivedAt = new AtomicLongArray(NODES);
+        CountDownLatch received = new CountDownLatch(NODES - 1);
+        List<ConfigurableApplicationContext> nodes = new ArrayList<>(NODES);
+
+        try {
+            for (int i = 0; i < NODES; i++) {
+                nodes.add(startNode(bus, i, email, receivedAt, received));
+            }
+
+            // Act
+            long start = System.nanoTime();
+            nodes.get(0).getBean(UserService.class).createUser(userCreateDTO(email));
+
+            // Assert
+            assertTrue(received.await(10, TimeUnit.SECONDS), "Every node should receive the invalidation");
+            for (int i = 1; i < NODES; i++) {
+                System.out.printf("%s bus: node %d received the invalidation after %.1f ms%n",
+                        bus, i, (receivedAt.get(i) - start) / 1e6);
+                assertTrue(awaitIndexed(nodes.get(i).getBean(EmailIndex.class), email));
+            }
+        } finally {
+            nodes.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    private ConfigurableApplicationContext startNode(String bus, int node, String email,
+                                                     AtomicLongArray receivedAt, CountDownLatch received) {
+        ApplicationListener<ApplicationEvent> listener = event -> {
+            if (node > 0
+                    && event instanceof PayloadApplicationEvent<?> payloadEvent
+                    && payloadEvent.getPayload() instanceof InvalidationMessage message
+                    && email.equals(message.getEmail())
+                    && receivedAt.compareAndSet(node, 0, System.nanoTime())) {
+                received.countDown();
+            }
+        };
+
+        return new SpringApplicationBuilder(UsersApplication.class)
+                .listeners(listener)
+                .run("--spring.datasource.url=jdbc:h2:mem:invalidation-" + bus + ";DB_CLOSE_DELAY=-1",
+                        "--server.port=0",
+                        "--warmup.enabled=false",
+                        "--security.password.bcrypt.strength=4",
+                        "--invalidation.bus=" + bus,
+                        "--invalidation.poll-interval-ms=20");
+    }
+
+    private boolean awaitIndexed(EmailIndex emailIndex, String email) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!emailIndex.mightContain(email)) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private UserCreateDTO userCreateDTO(String email) {
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Invalidation User");
+        userCreateDTO.setEmail(email);
+        userCreateDTO.setPassword("Password123");
+        userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "2", "56")));
+        return userCreateDTO;
+    }
+}
@@ -0,0 +1,134 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.dto.UserLoginDTO;
+import com.nisum.users.entities.OutboxEvent;
+import com.nisum.users.entities.OutboxEventType;
+import com.nisum.users.entities.User;
+import com.nisum.users.repositories.OutboxEventRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for UserChangeFeedServiceImpl, verifying that user creations and logins are recorded in the
+ * outbox in commit order, that a change committed late is relayed after the changes committed before
+ * it, and that consumers can resume the feed from the offset of the last change they processed.
+ */
+@SpringBootTest
+class UserChangeFeedServiceImplTest {
+
+    @Autowired
+    private UserServiceImpl userServiceImpl;
+
+    @Autowired
+    private UserChangeFeedServiceImpl userChangeFeedServiceImpl;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Change feed: Should expose creations and logins and resume after an offset")
+    void shouldExposeChangesAndResumeAfterOffset() {
+        // Arrange
+        userChangeFeedServiceImpl.relay();
+        long start = lastOffset(userChangeFeedServiceImpl.getChanges(0L, Integer.MAX_VALUE));
+
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Feed User");
+        userCreateDTO.setEmail("feed.user@example.com");
+        userCreateDTO.setPassword("Password123!");
+        userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "2", "56")));
+        User user = userServiceImpl.createUser(userCreateDTO);
+
+        UserLoginDTO userLoginDTO = new UserLoginDTO();
+        userLoginDTO.setEmail("feed.user@example.com");
+        userLoginDTO.setPassword("Password123!");
+        userServiceImpl.login(userLoginDTO);
+
+        // Act
+        userChangeFeedServiceImpl.relay();
+        List<OutboxEvent> changes = userChangeFeedServiceImpl.getChanges(start, 500).stream()
+                .filter(change -> change.getUserId().equals(user.getId()))
+                .toList();
+        List<OutboxEvent> resumed = userChangeFeedServiceImpl.getChanges(changes.get(0).getPosition(), 500).stream()
+                .filter(change -> change.getUserId().equals(user.getId()))
+                .toList();
+
+        // Assert
+        assertEquals(List.of(OutboxEventType.USER_CREATED, OutboxEventType.USER_LOGGED_IN),
+                changes.stream().map(OutboxEvent::getType).toList());
+        assertTrue(changes.get(0).getPosition() < changes.get(1).getPosition());
+        assertEquals(1, resumed.size());
+        assertEquals(OutboxEventType.USER_LOGGED_IN, resumed.get(0).getType());
+    }
+
+    @Test
+    @DisplayName("Change feed: Should relay a change committed after the changes that followed it")
+    void shouldRelayLateCommit() throws Exception {
+        // Arrange
+        userChangeFeedServiceImpl.relay();
+        long start = lastOffset(userChangeFeedServiceImpl.getChanges(0L, Integer.MAX_VALUE));
+        UUID lateUser = UUID.randomUUID();
+        UUID earlyUser = UUID.randomUUID();
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> late = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    outboxEventRepository.saveAndFlush(change(lateUser));
+                    inserted.countDown();
+                    await(commit);
+                }));
+        inserted.await();
+        outboxEventRepository.save(change(earlyUser));
+        userChangeFeedServiceImpl.relay();
+
+        // Act
+        commit.countDown();
+        late.get();
+        userChangeFeedServiceImpl.relay();
+        List<UUID> relayed = userChangeFeedServiceImpl.getChanges(start, 500).stream()
+                .map(OutboxEvent::getUserId)
+                .filter(userId -> userId.equals(lateUser) || userId.equals(earlyUser))
+                .toList();
+
+        // Assert
+        assertEquals(List.of(earlyUser, lateUser), relayed);
+    }
+
+    private static OutboxEvent change(UUID userId) {
+        return OutboxEvent.builder()
+                .type(OutboxEventType.USER_UPDATED)
+                .userId(userId)
+                .email(userId + "@example.com")
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long lastOffset(List<OutboxEvent> changes) {
+        return changes.isEmpty() ? 0L : changes.get(changes.size() - 1).getPosition();
+    }
+}
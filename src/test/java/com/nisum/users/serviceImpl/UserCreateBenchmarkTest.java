@@ -0,0 +1,65 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.utils.EmailIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+/**
+ * Benchmark of user creation throughput with and without the in-memory email index. BCrypt runs at
+ * its lowest strength so the duplicate check and the inserts dominate the measurement.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:create-benchmark",
+        "security.password.bcrypt.strength=4",
+        "warmup.enabled=false"
+})
+class UserCreateBenchmarkTest {
+
+    private static final int WARMUP_USERS = 2_000;
+    private static final int MEASURED_USERS = 10_000;
+
+    @Autowired
+    private UserServiceImpl userServiceImpl;
+
+    @Autowired
+    private EmailIndex emailIndex;
+
+    @Test
+    @DisplayName("Benchmark: createUser throughput with and without the email index")
+    void benchmarkCreateUser() {
+        createUsers("warmup", WARMUP_USERS);
+
+        ReflectionTestUtils.setField(emailIndex, "enabled", false);
+        double withoutIndex = createUsers("without-index", MEASURED_USERS);
+
+        ReflectionTestUtils.setField(emailIndex, "enabled", true);
+        double withIndex = createUsers("with-index", MEASURED_USERS);
+
+        System.out.printf("createUser without email index: %.0f ops/s%n", withoutIndex);
+        System.out.printf("createUser with email index:    %.0f ops/s%n", withIndex);
+    }
+
+    private double createUsers(String prefix, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            UserCreateDTO userCreateDTO = new UserCreateDTO();
+            userCreateDTO.setName("Benchmark User");
+            userCreateDTO.setEmail(prefix + "." + i + "@example.com");
+            userCreateDTO.setPassword("Password123");
+            userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "2", "56")));
+            userServiceImpl.createUser(userCreateDTO);
+        }
+        return count / ((System.nanoTime() - start) / 1e9);
+    }
+}
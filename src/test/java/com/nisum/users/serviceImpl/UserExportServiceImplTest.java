@@ -0,0 +1,83 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.dto.ExportFormat;
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for UserExportServiceImpl, checking that the streamed dumps are valid gzip data, contain the
+ * persisted users with their phones and that the parallel, range-partitioned mode produces the same
+ * rows as the sequential one.
+ */
+@SpringBootTest
+class UserExportServiceImplTest {
+
+    @Autowired
+    private UserServiceImpl userServiceImpl;
+
+    @Autowired
+    private UserExportServiceImpl userExportServiceImpl;
+
+    @Test
+    @DisplayName("Export NDJSON: Should write one line per user including its phones")
+    void shouldExportUsersAsNdjson() throws IOException {
+        // Arrange
+        createUser("export.ndjson@example.com", "555000111");
+
+        // Act
+        List<String> lines = export(ExportFormat.NDJSON, 1);
+
+        // Assert
+        String line = lines.stream().filter(l -> l.contains("export.ndjson@example.com")).findFirst().orElseThrow();
+        assertTrue(line.startsWith("{") && line.endsWith("}"));
+        assertTrue(line.contains("\"number\":\"555000111\""));
+        assertFalse(line.contains("password"));
+    }
+
+    @Test
+    @DisplayName("Export CSV: Partitioned export should contain the same rows as the sequential export")
+    void shouldExportSameRowsWhenPartitioned() throws IOException {
+        // Arrange
+        createUser("export.csv@example.com", "555000222");
+
+        // Act
+        List<String> sequential = export(ExportFormat.CSV, 1);
+        List<String> partitioned = export(ExportFormat.CSV, 4);
+
+        // Assert
+        assertTrue(sequential.get(0).startsWith("id,name,email"));
+        assertEquals(sequential.get(0), partitioned.get(0));
+        assertEquals(sequential.stream().sorted().toList(), partitioned.stream().sorted().toList());
+        assertTrue(partitioned.stream().anyMatch(l -> l.contains("export.csv@example.com") && l.contains("555000222")));
+    }
+
+    private void createUser(String email, String number) {
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Export User");
+        userCreateDTO.setEmail(email);
+        userCreateDTO.setPassword("Password123!");
+        userCreateDTO.setPhones(List.of(new PhoneDTO(number, "2", "56")));
+        userServiceImpl.createUser(userCreateDTO);
+    }
+
+    private List<String> export(ExportFormat format, int partitions) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        userExportServiceImpl.export(format, partitions, outputStream);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+}
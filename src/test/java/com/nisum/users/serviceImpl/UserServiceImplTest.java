@@ -3,6 +3,8 @@ package com.nisum.users.serviceImpl;
 import com.nisum.users.dto.PhoneDTO;
 import com.nisum.users.dto.UserCreateDTO;
 import com.nisum.users.dto.UserLoginDTO;
+import com.nisum.users.dto.UserUpdateDTO;
+import com.nisum.users.entities.Phone;
 import com.nisum.users.entities.User;
 import com.nisum.users.exceptions.EmailAlreadyExistsException;
 import com.nisum.users.exceptions.NotFoundException;
@@ -14,6 +16,8 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.util.*;
@@ -30,7 +34,6 @@ import static org.mockito.Mockito.*;
  * <p>
  * Mocks:
  * - UserRepository: Mocked to simulate user persistence interactions.
- * - PhoneRepository: Mocked to simulate phone persistence interactions.
  * - BCryptPasswordEncoder: Mocked to simulate password encoding.
  * - JwtTokenUtil: Mocked to simulate JWT token operations.
  * <p>
@@ -40,9 +43,14 @@ import static org.mockito.Mockito.*;
  * Methods tested:
  * - testCreateUserSuccessfully: Tests the successful creation of a user ensuring all attributes are properly set.
  * - testCreateUserThrowsEmailAlreadyExistsException: Tests that creating a user with an existing email throws the correct exception.
+ * - testCreateUserMapsUniqueViolationToEmailAlreadyExistsException: Tests that an email unknown to the email index but already stored is rejected by the unique constraint.
+ * - testCreateUserRethrowsOtherConstraintViolations: Tests that a violation of another constraint is not reported as a duplicate email.
  * - testLoginSuccessfully: Verifies that a user can log in successfully and receive a valid token.
  * - testLoginWithInvalidEmailThrowsNotFoundException: Confirms that attempting to log in with an invalid email will throw a NotFoundException.
  * - testLoginWithInvalidPasswordThrowsNotFoundException: Checks that logging in with a valid email but invalid password throws a NotFoundException.
+ * - testLoginRehashesOutdatedPassword: Verifies that a login with an outdated password hash stores a rehashed password.
+ * - testUpdateUserAppliesOnlySuppliedFields: Verifies that a partial update changes only the supplied fields and phones.
+ * - testUpdateUserWithStaleVersionThrowsOptimisticLockingFailure: Confirms that an update carrying an outdated version is rejected.
  * <p>
  * The test methods use assertions to confirm the expected behavior, including successful operations and exception handling.
  */
@@ -61,6 +69,9 @@ public class UserServiceImplTest {
     @Autowired
     private UserServiceImpl userServiceImpl;
 
+    @Autowired
+    private UserRepository storedUserRepository;
+
     public UserServiceImplTest() {
         MockitoAnnotations.openMocks(this);
     }
@@ -128,6 +139,40 @@ public class UserServiceImplTest {
         assertThrows(EmailAlreadyExistsException.class, () -> userServiceImpl.createUser(userCreateDTO2));
     }
 
+    @Test
+    @DisplayName("Test throwing exception when an email missing from the index already exists")
+    void testCreateUserMapsUniqueViolationToEmailAlreadyExistsException() {
+        // Arrange
+        storedUserRepository.save(User.builder()
+                .name("Other Node")
+                .email("other.node@example.com")
+                .password("hash")
+                .isActive(true)
+                .build());
+
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("John Doe");
+        userCreateDTO.setEmail("other.node@example.com");
+        userCreateDTO.setPassword("Password123!");
+        userCreateDTO.setPhones(new ArrayList<>(List.of(new PhoneDTO("123456789", "123", "1"))));
+
+        // Act & Assert
+        assertThrows(EmailAlreadyExistsException.class, () -> userServiceImpl.createUser(userCreateDTO));
+    }
+
+    @Test
+    @DisplayName("Test rethrowing a violation of a constraint other than the email uniqueness")
+    void testCreateUserRethrowsOtherConstraintViolations() {
+        // Arrange
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setEmail("nameless@example.com");
+        userCreateDTO.setPassword("Password123!");
+        userCreateDTO.setPhones(new ArrayList<>(List.of(new PhoneDTO("123456789", "123", "1"))));
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class, () -> userServiceImpl.createUser(userCreateDTO));
+    }
+
     @Test
     @DisplayName("Test successful user login")
     void testLoginSuccessfully() {
@@ -155,6 +200,30 @@ public class UserServiceImplTest {
         assertNotNull(loggedInUser.getToken());
     }
 
+    @Test
+    @DisplayName("Test successful login rehashes an outdated password hash")
+    void testLoginRehashesOutdatedPassword() {
+        // Arrange
+        User user = User.builder()
+                .name("Legacy User")
+                .email("legacy.hash@example.com")
+                .password(new BCryptPasswordEncoder(4).encode("Password123!"))
+                .isActive(true)
+                .build();
+        storedUserRepository.save(user);
+
+        UserLoginDTO userLoginDTO = new UserLoginDTO();
+        userLoginDTO.setEmail("legacy.hash@example.com");
+        userLoginDTO.setPassword("Password123!");
+
+        // Act
+        User loggedInUser = userServiceImpl.login(userLoginDTO);
+
+        // Assert
+        assertTrue(loggedInUser.getPassword().startsWith("{bcrypt}"));
+        assertNotEquals(user.getPassword(), loggedInUser.getPassword());
+    }
+
     @Test
     @DisplayName("Test throwing exception for login attempt with invalid email")
     void testLoginWithInvalidEmailThrowsNotFoundException() {
@@ -199,4 +268,61 @@ public class UserServiceImplTest {
         // Act & Assert
         assertThrows(NotFoundException.class, () -> userServiceImpl.getUserById(userId));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test partial user update changes only the supplied fields")
+    void testUpdateUserAppliesOnlySuppliedFields() {
+        // Arrange
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Jane Doe");
+        userCreateDTO.setEmail("jane.patch@example.com");
+        userCreateDTO.setPassword("Password123!");
+        userCreateDTO.setPhones(new ArrayList<>(List.of(new PhoneDTO("111111111", "2", "56"))));
+
+        User createdUser = userServiceImpl.createUser(userCreateDTO);
+        UUID oldPhoneId = createdUser.getPhones().iterator().next().getId();
+
+        UserUpdateDTO userUpdateDTO = new UserUpdateDTO();
+        userUpdateDTO.setName("Jane Smith");
+        userUpdateDTO.setAddPhones(List.of(new PhoneDTO("222222222", "2", "56")));
+        userUpdateDTO.setRemovePhoneIds(Set.of(oldPhoneId));
+
+        // Act
+        User updatedUser = userServiceImpl.updateUser(createdUser.getId(), userUpdateDTO);
+
+        // Assert
+        assertEquals("Jane Smith", updatedUser.getName());
+        assertEquals("jane.patch@example.com", updatedUser.getEmail());
+        assertEquals(createdUser.getPassword(), updatedUser.getPassword());
+        assertEquals(1, updatedUser.getPhones().size());
+        Phone phone = updatedUser.getPhones().iterator().next();
+        assertEquals("222222222", phone.getNumber());
+        assertNotEquals(oldPhoneId, phone.getId());
+    }
+
+    @Test
+    @DisplayName("Test throwing exception when updating a user with a stale version")
+    void testUpdateUserWithStaleVersionThrowsOptimisticLockingFailure() {
+        // Arrange
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Jane Doe");
+        userCreateDTO.setEmail("jane.version@example.com");
+        userCreateDTO.setPassword("Password123!");
+        userCreateDTO.setPhones(new ArrayList<>(List.of(new PhoneDTO("333333333", "2", "56"))));
+
+        User createdUser = userServiceImpl.createUser(userCreateDTO);
+
+        UserUpdateDTO firstUpdate = new UserUpdateDTO();
+        firstUpdate.setName("Jane First");
+        firstUpdate.setVersion(createdUser.getVersion());
+        userServiceImpl.updateUser(createdUser.getId(), firstUpdate);
+
+        UserUpdateDTO staleUpdate = new UserUpdateDTO();
+        staleUpdate.setName("Jane Stale");
+        staleUpdate.setVersion(createdUser.getVersion());
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> userServiceImpl.updateUser(createdUser.getId(), staleUpdate));
+    }
+}
@@ -0,0 +1,182 @@
+package com.nisum.users.serviceImpl;
+
+import com.nisum.users.dto.PhoneDTO;
+import com.nisum.users.dto.UserCreateDTO;
+import com.nisum.users.dto.UserLoginDTO;
+import com.nisum.users.entities.User;
+import com.nisum.users.exceptions.EmailAlreadyExistsException;
+import com.nisum.users.exceptions.NotFoundException;
+import com.nisum.users.repositories.ArchivedUserRepository;
+import com.nisum.users.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for UserTieringServiceImpl, verifying that inactive users are moved to the archive with their
+ * phones, that lookups and duplicate checks fall back to the archive, and that a login moves the user
+ * back. Users are made inactive by moving their last login into the past.
+ */
+@SpringBootTest
+class UserTieringServiceImplTest {
+
+    @Autowired
+    private UserServiceImpl userServiceImpl;
+
+    @Autowired
+    private UserTieringServiceImpl userTieringServiceImpl;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ArchivedUserRepository archivedUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("Tiering: Should archive an inactive user and restore it on login")
+    void shouldArchiveInactiveUserAndRestoreOnLogin() {
+        // Arrange
+        User user = createInactiveUser("tiering.restored@example.com");
+        double hits = count("users.tier.fallback", "result", "hit");
+        double restored = count("users.tier.moved", "direction", "restored");
+
+        // Act
+        int archived = userTieringServiceImpl.archiveInactiveUsers();
+        User fetched = userServiceImpl.getUserById(user.getId());
+        User loggedIn = userServiceImpl.login(login("tiering.restored@example.com", "Password123!"));
+
+        // Assert
+        assertTrue(archived >= 1);
+        assertEquals("tiering.restored@example.com", fetched.getEmail());
+        assertEquals(1, fetched.getPhones().size());
+        assertEquals(user.getId(), loggedIn.getId());
+        assertEquals(1, loggedIn.getPhones().size());
+        assertTrue(userRepository.findById(user.getId()).isPresent());
+        assertFalse(archivedUserRepository.existsById(user.getId()));
+        assertTrue(count("users.tier.fallback", "result", "hit") >= hits + 2);
+        assertEquals(restored + 1, count("users.tier.moved", "direction", "restored"));
+    }
+
+    @Test
+    @DisplayName("Tiering: Should keep an archived email taken and keep the user archived on a wrong password")
+    void shouldKeepArchivedEmailTaken() {
+        // Arrange
+        User user = createInactiveUser("tiering.archived@example.com");
+        userTieringServiceImpl.archiveInactiveUsers();
+
+        UserCreateDTO duplicate = new UserCreateDTO();
+        duplicate.setName("Duplicate");
+        duplicate.setEmail("tiering.archived@example.com");
+        duplicate.setPassword("Password123!");
+        duplicate.setPhones(List.of());
+
+        // Act & Assert
+        assertThrows(EmailAlreadyExistsException.class, () -> userServiceImpl.createUser(duplicate));
+        assertThrows(NotFoundException.class,
+                () -> userServiceImpl.login(login("tiering.archived@example.com", "WrongPassword!")));
+        assertTrue(userRepository.findById(user.getId()).isEmpty());
+        assertTrue(archivedUserRepository.existsById(user.getId()));
+    }
+
+    @Test
+    @DisplayName("Tiering: Should keep a hot user that changed after it was copied to the archive")
+    void shouldKeepUserChangedAfterCopy() {
+        // Arrange
+        User user = createInactiveUser("tiering.changed@example.com");
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusDays(180);
+
+        // Act
+        int deleted = transactionTemplate.execute(status -> {
+            archivedUserRepository.copyUsersToArchive(List.of(user.getId()), cutoff, now);
+            jdbcTemplate.update("update app_user set version = version + 1 where id = ?", user.getId());
+            int count = archivedUserRepository.deleteHotUsers(List.of(user.getId()), cutoff);
+            status.setRollbackOnly();
+            return count;
+        });
+
+        // Assert
+        assertEquals(0, deleted);
+        assertTrue(userRepository.findById(user.getId()).isPresent());
+    }
+
+    @Test
+    @DisplayName("Tiering: Should let a login wait for a concurrent restore of the same user")
+    void shouldWaitForConcurrentRestore() throws Exception {
+        // Arrange
+        User user = createInactiveUser("tiering.concurrent@example.com");
+        userTieringServiceImpl.archiveInactiveUsers();
+        CountDownLatch restoring = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Act
+        Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            userTieringServiceImpl.restore(user.getId());
+            restoring.countDown();
+            sleep(300);
+        }));
+        restoring.await();
+        User loggedIn = userServiceImpl.login(login("tiering.concurrent@example.com", "Password123!"));
+        first.get();
+        executor.shutdown();
+
+        // Assert
+        assertEquals(user.getId(), loggedIn.getId());
+        assertTrue(userRepository.findById(user.getId()).isPresent());
+        assertFalse(archivedUserRepository.existsById(user.getId()));
+    }
+
+    private User createInactiveUser(String email) {
+        UserCreateDTO userCreateDTO = new UserCreateDTO();
+        userCreateDTO.setName("Tiering User");
+        userCreateDTO.setEmail(email);
+        userCreateDTO.setPassword("Password123!");
+        userCreateDTO.setPhones(List.of(new PhoneDTO("123456789", "2", "56")));
+        User user = userServiceImpl.createUser(userCreateDTO);
+        jdbcTemplate.update("update app_user set last_login = ? where id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(365)), user.getId());
+        return user;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static UserLoginDTO login(String email, String password) {
+        UserLoginDTO userLoginDTO = new UserLoginDTO();
+        userLoginDTO.setEmail(email);
+        userLoginDTO.setPassword(password);
+        return userLoginDTO;
+    }
+
+    private double count(String name, String tag, String value) {
+        return meterRegistry.get(name).tag(tag, value).counter().count();
+    }
+}
@@ -0,0 +1,90 @@
+package com.nisum.users.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdaptiveConcurrencyLimiter grants permits up to its limit, raises the limit while saturated at a steady
+ * latency and lowers it once the latency rises. Latencies are passed explicitly so the updates are exact.
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLISECOND = 1_000_000;
+
+    @Test
+    @DisplayName("Concurrency limiter: Should reject requests beyond the limit and count them")
+    void shouldRejectBeyondLimit() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        // Act
+        boolean first = limiter.tryAcquire();
+        boolean second = limiter.tryAcquire();
+        boolean third = limiter.tryAcquire();
+
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    @DisplayName("Concurrency limiter: Should raise the limit while saturated at a steady latency")
+    void shouldRaiseLimitAtSteadyLatency() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 100);
+
+        // Act
+        saturate(limiter, 20, MILLISECOND);
+
+        // Assert
+        assertTrue(limiter.getLimit() > 10, () -> "limit " + limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Concurrency limiter: Should lower the limit once the latency rises")
+    void shouldLowerLimitWhenLatencyRises() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 2, 100);
+        saturate(limiter, 5, MILLISECOND);
+        int before = limiter.getLimit();
+
+        // Act
+        saturate(limiter, 10, 20 * MILLISECOND);
+
+        // Assert
+        assertTrue(limiter.getLimit() < before / 4, () -> "limit " + limiter.getLimit() + " was " + before);
+    }
+
+    @Test
+    @DisplayName("Concurrency limiter: Should keep the limit while less than half of it is in use")
+    void shouldKeepLimitWhenIdle() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 100);
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(i % 2 == 0 ? MILLISECOND : 50 * MILLISECOND);
+        }
+
+        // Assert
+        assertEquals(10, limiter.getLimit());
+    }
+
+    /**
+     * Takes every permit and returns them all, with the given latency, the given number of times.
+     */
+    private static void saturate(AdaptiveConcurrencyLimiter limiter, int rounds, long rttNanos) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) acquired++;
+            for (int i = 0; i < acquired; i++) limiter.release(rttNanos);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.nisum.users.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Measures the bytes allocated by an operation and compares them against a checked-in budget stored in
+ * {@code src/test/resources/allocation-budgets/<name>.txt}, one {@code <operation>=<bytes>} line per
+ * operation. The operation is run on the calling thread, first to warm up the JIT compiler and then for
+ * the measured iterations, each read from the thread allocation counter; the median is compared so a
+ * stray class load or deoptimization does not fail the build. Only allocations on the calling thread are
+ * counted, which covers a MockMvc request but not work handed to other threads.
+ * <p>
+ * A measurement fails when it exceeds its budget by more than {@code allocation.budget.tolerance}
+ * (10% by default). {@link #finish()} prints every measurement against its budget and, when the build
+ * runs with {@code -Dallocation.budget.update=true}, rewrites the budgets from the measurements.
+ */
+public final class AllocationBudget {
+
+    private static final String BUDGET_DIRECTORY = "allocation-budgets";
+    private static final Path BUDGET_SOURCE = Path.of("src", "test", "resources", BUDGET_DIRECTORY);
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final String name;
+    private final String description;
+    private final Map<String, Long> budgets;
+    private final Map<String, Long> measured = new LinkedHashMap<>();
+
+    /**
+     * An operation to measure, such as a request performed through MockMvc.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    /**
+     * Loads the named budget.
+     *
+     * @param name the budget name, matching a file in the allocation-budgets resource directory
+     * @param description a comment written at the top of the budget file when it is regenerated
+     */
+    public AllocationBudget(String name, String description) {
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not count the bytes allocated by threads");
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        this.name = name;
+        this.description = description;
+        this.budgets = read(name);
+    }
+
+    /**
+     * Measures the median bytes allocated by one run of the operation and asserts that it stays within
+     * its budget.
+     *
+     * @param operation the operation name, matching a line of the budget
+     * @param warmup the number of runs before measuring
+     * @param iterations the number of measured runs
+     * @param action the operation to run
+     * @return the median bytes allocated per run
+     */
+    public long assertWithin(String operation, int warmup, int iterations, Operation action) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            action.run();
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            action.run();
+            samples[i] = THREADS.getCurrentThreadAllocatedBytes() - before;
+        }
+        Arrays.sort(samples);
+        long bytes = samples[iterations / 2];
+        measured.put(operation, bytes);
+
+        if (Boolean.getBoolean("allocation.budget.update")) {
+            return bytes;
+        }
+        Long budget = budgets.get(operation);
+        if (budget == null) {
+            fail("Missing allocation budget for '" + operation + "' in " + BUDGET_DIRECTORY + "/" + name
+                    + ".txt; run with -Dallocation.budget.update=true to create it.");
+        }
+        double tolerance = Double.parseDouble(System.getProperty("allocation.budget.tolerance", "0.1"));
+        if (bytes > budget * (1 + tolerance)) {
+            fail(String.format("Allocation budget '%s' exceeded: %,d bytes per run, budget %,d (%+.1f%%)%n%s"
+                            + "Run with -Dallocation.budget.update=true to accept the new allocations.",
+                    operation, bytes, budget, percent(bytes, budget), report()));
+        }
+        return bytes;
+    }
+
+    /**
+     * Prints the allocation breakdown of every operation measured, and rewrites the budget file when the
+     * build runs with {@code -Dallocation.budget.update=true}, keeping the budgets of operations not measured.
+     */
+    public void finish() {
+        if (Boolean.getBoolean("allocation.budget.update")) {
+            write();
+        }
+        System.out.print(report());
+    }
+
+    /**
+     * Lists every measurement taken so far against its budget.
+     *
+     * @return a table of the operations with their measured and budgeted bytes per run
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("%-32s %14s %14s %9s%n", name, "bytes/run", "budget", "change"));
+        measured.forEach((operation, bytes) -> {
+            Long budget = budgets.get(operation);
+            report.append(budget == null
+                    ? String.format("%-32s %,14d %14s %9s%n", operation, bytes, "-", "-")
+                    : String.format("%-32s %,14d %,14d %+8.1f%%%n", operation, bytes, budget, percent(bytes, budget)));
+        });
+        return report.toString();
+    }
+
+    private static double percent(long bytes, long budget) {
+        return budget == 0 ? 0 : (bytes - budget) * 100.0 / budget;
+    }
+
+    private static Map<String, Long> read(String name) {
+        String resource = "/" + BUDGET_DIRECTORY + "/" + name + ".txt";
+        try (InputStream inputStream = AllocationBudget.class.getResourceAsStream(resource)) {
+            if (inputStream == null) {
+                return Map.of();
+            }
+            Map<String, Long> budgets = new LinkedHashMap<>();
+            new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .forEach(line -> {
+                        int separator = line.indexOf('=');
+                        budgets.put(line.substring(0, separator).trim(), Long.parseLong(line.substring(separator + 1).trim()));
+                    });
+            return budgets;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read allocation budget " + resource, e);
+        }
+    }
+
+    private void write() {
+        Map<String, Long> updated = new LinkedHashMap<>(budgets);
+        updated.putAll(measured);
+        List<String> lines = new ArrayList<>(updated.size() + 1);
+        lines.add("# " + description);
+        updated.forEach((operation, bytes) -> lines.add(operation + "=" + bytes));
+        try {
+            Files.createDirectories(BUDGET_SOURCE);
+            Files.write(BUDGET_SOURCE.resolve(name + ".txt"), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write allocation budget " + name, e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.nisum.users.utils;
+
+import com.nisum.users.UsersApplication;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the restart time of a node holding {@code benchmark.rows} users (5 million by default),
+ * rebuilding the email index from a full scan and restoring it from its snapshot. Between the snapshot
+ * and the restart {@code benchmark.delta-rows} users are added behind the back of the node, so the
+ * restored index has to catch up with them. The rows are bulk loaded through JDBC.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark.rows=5000000}.
+ */
+@Tag("benchmark")
+class EmailIndexSnapshotBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 5_000_000);
+    private static final int DELTA_ROWS = Integer.getInteger("benchmark.delta-rows", 10_000);
+    private static final int LOAD_BATCH = 10_000;
+    private static final int SEEDED_USERS = 1;
+
+    @TempDir
+    private Path dataDir;
+
+    @Test
+    @DisplayName("Benchmark: restart time with and without the email index snapshot")
+    void benchmarkRestart() {
+        // Arrange
+        Path snapshot = dataDir.resolve("email-index.snapshot");
+        try (ConfigurableApplicationContext context = start("email-index.enabled=false")) {
+            load(context.getBean(JdbcTemplate.class), "loaded", ROWS, LocalDateTime.now().minusHours(1));
+        }
+        try (ConfigurableApplicationContext context = start("email-index.snapshot-file=" + snapshot)) {
+            assertEquals(ROWS + SEEDED_USERS, context.getBean(EmailIndex.class).size());
+        }
+        assertTrue(Files.exists(snapshot));
+        try (ConfigurableApplicationContext context = start("email-index.enabled=false")) {
+            load(context.getBean(JdbcTemplate.class), "delta", DELTA_ROWS, LocalDateTime.now());
+        }
+
+        // Act
+        long scanStart = System.nanoTime();
+        try (ConfigurableApplicationContext context = start("email-index.snapshot-file=")) {
+            long scanMillis = (System.nanoTime() - scanStart) / 1_000_000;
+            System.out.printf("full scan: restarted with %d indexed emails in %d ms%n",
+                    context.getBean(EmailIndex.class).size(), scanMillis);
+        }
+
+        long restoreStart = System.nanoTime();
+        try (ConfigurableApplicationContext context = start("email-index.snapshot-file=" + snapshot)) {
+            long restoreMillis = (System.nanoTime() - restoreStart) / 1_000_000;
+            EmailIndex emailIndex = context.getBean(EmailIndex.class);
+            System.out.printf("snapshot: restarted with %d indexed emails in %d ms (%d MB file)%n",
+                    emailIndex.size(), restoreMillis, snapshotMegabytes(snapshot));
+
+            // Assert
+            assertEquals(ROWS + DELTA_ROWS + SEEDED_USERS, emailIndex.size());
+            assertTrue(emailIndex.mightContain("delta." + (DELTA_ROWS - 1) + "@example.com"));
+        }
+    }
+
+    private ConfigurableApplicationContext start(String indexProperty) {
+        return new SpringApplicationBuilder(UsersApplication.class)
+                .properties(
+                        "spring.profiles.active=prod",
+                        "spring.datasource.url=jdbc:h2:file:" + dataDir.resolve("users") + ";DB_CLOSE_ON_EXIT=FALSE",
+                        indexProperty,
+                        "server.port=0",
+                        "warmup.enabled=false",
+                        "jwt.keystore.password=benchmark",
+                        "security.password.bcrypt.strength=4")
+                .run();
+    }
+
+    private void load(JdbcTemplate jdbcTemplate, String prefix, int rowCount, LocalDateTime updatedAt) {
+        Timestamp timestamp = Timestamp.valueOf(updatedAt);
+        for (int batch = 0; batch < rowCount; batch += LOAD_BATCH) {
+            List<Object[]> rows = new ArrayList<>(LOAD_BATCH);
+            for (int i = batch; i < Math.min(batch + LOAD_BATCH, rowCount); i++) {
+                rows.add(new Object[]{UUID.randomUUID(), "Loaded User", prefix + "." + i + "@example.com",
+                        "{bcrypt}$2a$04$loadedloadedloadedloadeduBxVDSYRc9l8nI6jWw8X1iw0aSTBO", timestamp, timestamp});
+            }
+            jdbcTemplate.batchUpdate("insert into app_user (id, name, email, password, is_active, created_at, "
+                    + "updated_at, version) values (?, ?, ?, ?, true, ?, ?, 0)", rows);
+        }
+    }
+
+    private static long snapshotMegabytes(Path snapshot) {
+        return snapshot.toFile().length() >> 20;
+    }
+}
@@ -0,0 +1,139 @@
+package com.nisum.users.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailIndexTest {
+
+    /**
+     * EmailIndex keeps fingerprints of registered emails in an open-addressing table, reporting
+     * definite misses so the duplicate check can skip the database.
+     */
+    private final EmailIndex emailIndex = new EmailIndex(null, null);
+
+    @TempDir
+    private Path snapshotDir;
+
+
+    @Test
+    @DisplayName("Reporting every email as possibly present before loading")
+    public void testMightContainBeforeLoading() {
+        // Arrange
+        ReflectionTestUtils.setField(emailIndex, "enabled", true);
+
+        // Act
+        boolean result = emailIndex.mightContain("unknown@example.com");
+
+        // Assert
+        assertTrue(result);
+    }
+
+
+    @Test
+    @DisplayName("Reporting added emails as present and others as missing across resizes")
+    public void testMightContainAfterAdding() {
+        // Arrange
+        ReflectionTestUtils.setField(emailIndex, "enabled", true);
+        ReflectionTestUtils.setField(emailIndex, "loaded", true);
+
+        // Act
+        for (int i = 0; i < 5000; i++) {
+            emailIndex.add("user" + i + "@example.com");
+        }
+
+        // Assert
+        assertEquals(5000, emailIndex.size());
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(emailIndex.mightContain("user" + i + "@example.com"));
+        }
+        assertFalse(emailIndex.mightContain("missing@example.com"));
+    }
+
+
+    @Test
+    @DisplayName("Ignoring duplicate emails")
+    public void testAddDuplicateEmail() {
+        // Arrange
+        ReflectionTestUtils.setField(emailIndex, "enabled", true);
+        ReflectionTestUtils.setField(emailIndex, "loaded", true);
+
+        // Act
+        emailIndex.add("same@example.com");
+        emailIndex.add("same@example.com");
+
+        // Assert
+        assertEquals(1, emailIndex.size());
+    }
+
+
+    @Test
+    @DisplayName("Restoring the entries of a snapshot with a watermark moved back by the overlap")
+    public void testRestoreSnapshot() {
+        // Arrange
+        Path file = snapshotDir.resolve("email-index.snapshot");
+        configure(emailIndex, file, "jdbc:h2:mem:users");
+        for (int i = 0; i < 5000; i++) {
+            emailIndex.add("user" + i + "@example.com");
+        }
+        LocalDateTime before = LocalDateTime.now().minusSeconds(60);
+        emailIndex.snapshot();
+        EmailIndex restored = new EmailIndex(null, null);
+        configure(restored, file, "jdbc:h2:mem:users");
+
+        // Act
+        LocalDateTime watermark = restored.restoreSnapshot();
+
+        // Assert
+        assertNotNull(watermark);
+        assertFalse(watermark.isBefore(before));
+        assertTrue(watermark.isBefore(LocalDateTime.now().minusSeconds(59)));
+        assertEquals(5000, restored.size());
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(restored.mightContain("user" + i + "@example.com"));
+        }
+        assertFalse(restored.mightContain("missing@example.com"));
+    }
+
+
+    @Test
+    @DisplayName("Ignoring a snapshot of another database or a damaged snapshot")
+    public void testRestoreUnusableSnapshot() throws Exception {
+        // Arrange
+        Path file = snapshotDir.resolve("email-index.snapshot");
+        configure(emailIndex, file, "jdbc:h2:mem:users");
+        emailIndex.add("user@example.com");
+        emailIndex.snapshot();
+        EmailIndex otherDatabase = new EmailIndex(null, null);
+        configure(otherDatabase, file, "jdbc:h2:mem:other");
+        EmailIndex damaged = new EmailIndex(null, null);
+        configure(damaged, file, "jdbc:h2:mem:users");
+
+        // Act
+        LocalDateTime otherDatabaseWatermark = otherDatabase.restoreSnapshot();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        LocalDateTime damagedWatermark = damaged.restoreSnapshot();
+
+        // Assert
+        assertNull(otherDatabaseWatermark);
+        assertNull(damagedWatermark);
+        assertEquals(0, damaged.size());
+    }
+
+    private static void configure(EmailIndex index, Path file, String source) {
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "loaded", true);
+        ReflectionTestUtils.setField(index, "snapshotFile", file.toString());
+        ReflectionTestUtils.setField(index, "snapshotOverlapMs", 60_000L);
+        ReflectionTestUtils.setField(index, "source", source);
+    }
+}
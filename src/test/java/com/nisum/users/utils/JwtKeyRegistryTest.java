@@ -0,0 +1,118 @@
+package com.nisum.users.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JwtKeyRegistry keeps the signing keys in a keystore shared by the nodes, adds keys ahead of their
+ * activation and retires them once their tokens have expired. Rotations are given explicit times.
+ */
+class JwtKeyRegistryTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long ROTATION_INTERVAL_MS = 10_000;
+    private static final long ACTIVATION_DELAY_MS = 1_000;
+    private static final long TOKEN_LIFETIME_MS = 60_000;
+    private static final long CLOCK_SKEW_MS = 5_000;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("JWT keys: Should accept tokens issued before a restart")
+    void shouldAcceptTokensAfterRestart() {
+        // Arrange
+        Path file = directory.resolve("jwt-keys.p12");
+        JwtKeyRegistry registry = registry(file);
+        registry.init();
+        String token = new JwtTokenUtil(registry, TOKEN_LIFETIME_MS, CLOCK_SKEW_MS).generateToken("user@example.com");
+
+        // Act
+        JwtKeyRegistry restarted = registry(file);
+        restarted.init();
+
+        // Assert
+        assertTrue(Files.exists(file));
+        assertEquals("user@example.com",
+                new JwtTokenUtil(restarted, TOKEN_LIFETIME_MS, CLOCK_SKEW_MS).parseEmail(token));
+    }
+
+    @Test
+    @DisplayName("JWT keys: Should sign with a rotated key only once it is active")
+    void shouldActivateRotatedKeyAfterDelay() throws Exception {
+        // Arrange
+        JwtKeyRegistry registry = registry(directory.resolve("jwt-keys.p12"));
+        registry.rotate(START);
+        JwtKeyRegistry.SigningKey first = registry.signingKey(START);
+
+        // Act
+        registry.rotate(START + ROTATION_INTERVAL_MS - ACTIVATION_DELAY_MS);
+
+        // Assert
+        JwtKeyRegistry.SigningKey second = registry.signingKey(START + ROTATION_INTERVAL_MS);
+        assertNotEquals(first.id(), second.id());
+        assertEquals(START + ROTATION_INTERVAL_MS, second.activatesAt());
+        assertEquals(first.id(), registry.signingKey(START + ROTATION_INTERVAL_MS - 1).id());
+        assertNotNull(registry.verificationKey(first.id()));
+        assertNotNull(registry.verificationKey(second.id()));
+    }
+
+    @Test
+    @DisplayName("JWT keys: Should retire a key once the tokens it signed have expired")
+    void shouldRetireExpiredKeys() throws Exception {
+        // Arrange
+        JwtKeyRegistry registry = registry(directory.resolve("jwt-keys.p12"));
+        registry.rotate(START);
+        String first = registry.signingKey(START).id();
+        registry.rotate(START + ROTATION_INTERVAL_MS - ACTIVATION_DELAY_MS);
+        long secondActive = START + ROTATION_INTERVAL_MS;
+
+        // Act
+        registry.rotate(secondActive + TOKEN_LIFETIME_MS + CLOCK_SKEW_MS - 1);
+        boolean keptDuringOverlap = registry.verificationKey(first) != null;
+        registry.rotate(secondActive + TOKEN_LIFETIME_MS + CLOCK_SKEW_MS);
+
+        // Assert
+        assertTrue(keptDuringOverlap);
+        assertNull(registry.verificationKey(first));
+    }
+
+    @Test
+    @DisplayName("JWT keys: Should pick up keys rotated by another node sharing the keystore")
+    void shouldReloadKeysRotatedElsewhere() throws Exception {
+        // Arrange
+        Path file = directory.resolve("jwt-keys.p12");
+        JwtKeyRegistry rotating = registry(file);
+        rotating.rotate(START);
+        JwtKeyRegistry other = registry(file);
+        ReflectionTestUtils.setField(other, "rotationEnabled", false);
+        other.init();
+
+        // Act
+        rotating.rotate(START + ROTATION_INTERVAL_MS - ACTIVATION_DELAY_MS);
+        // Both writes may fall within the timestamp granularity of the file system.
+        ReflectionTestUtils.setField(other, "loadedModifiedTime", null);
+        other.reloadIfChanged();
+
+        // Assert
+        String rotated = rotating.signingKey(START + ROTATION_INTERVAL_MS).id();
+        assertNotNull(other.verificationKey(rotated));
+    }
+
+    private static JwtKeyRegistry registry(Path file) {
+        JwtKeyRegistry registry = new JwtKeyRegistry();
+        ReflectionTestUtils.setField(registry, "keystoreFile", file.toString());
+        ReflectionTestUtils.setField(registry, "rotationIntervalMs", ROTATION_INTERVAL_MS);
+        ReflectionTestUtils.setField(registry, "activationDelayMs", ACTIVATION_DELAY_MS);
+        ReflectionTestUtils.setField(registry, "tokenLifetimeMs", TOKEN_LIFETIME_MS);
+        ReflectionTestUtils.setField(registry, "clockSkewMs", CLOCK_SKEW_MS);
+        return registry;
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.Base64;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -55,4 +57,44 @@ class JwtTokenUtilTest {
         assertFalse(jwtTokenUtil.validateToken(invalidToken), "Invalid token should not be considered valid.");
         assertThrows(JwtException.class, () -> jwtTokenUtil.getEmailFromToken(invalidToken), "Parsing invalid token should throw JwtException.");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Generate Token: Should identify the signing key in the token header")
+    void shouldWriteKeyIdHeader() {
+        // Arrange
+        JwtKeyRegistry jwtKeyRegistry = JwtKeyRegistry.ephemeral();
+        JwtTokenUtil tokenUtil = new JwtTokenUtil(jwtKeyRegistry, 60_000, 0);
+
+        // Act
+        String token = tokenUtil.generateToken("testuser@example.com");
+
+        // Assert
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+        assertTrue(header.contains("\"kid\":\"" + jwtKeyRegistry.signingKey().id() + "\""), header);
+    }
+
+    @Test
+    @DisplayName("Validate Token: Should reject a token signed with an unknown key")
+    void shouldRejectTokenSignedWithUnknownKey() {
+        // Arrange
+        String token = new JwtTokenUtil().generateToken("testuser@example.com");
+
+        // Act & Assert
+        assertFalse(jwtTokenUtil.validateToken(token), "Token signed with another key should not be valid.");
+        assertThrows(JwtException.class, () -> jwtTokenUtil.getEmailFromToken(token));
+    }
+
+    @Test
+    @DisplayName("Validate Token: Should reject a token past its configured lifetime")
+    void shouldRejectExpiredToken() {
+        // Arrange
+        JwtTokenUtil shortLived = new JwtTokenUtil(JwtKeyRegistry.ephemeral(), -1_000, 0);
+
+        // Act
+        String token = shortLived.generateToken("testuser@example.com");
+
+        // Assert
+        assertFalse(shortLived.validateToken(token), "Expired token should not be valid.");
+        assertNull(shortLived.parseEmail(token));
+    }
+}
@@ -0,0 +1,64 @@
+package com.nisum.users.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PasswordHashCalibratorTest {
+
+    /**
+     * PasswordHashCalibrator chooses the BCrypt strength for the host by benchmarking hashes
+     * against a latency target, bounded by a minimum and a maximum strength.
+     */
+    private final PasswordHashCalibrator passwordHashCalibrator = new PasswordHashCalibrator();
+
+
+    @Test
+    @DisplayName("Calibrating with a fixed strength")
+    public void testCalibrateWithFixedStrength() {
+        // Arrange
+        ReflectionTestUtils.setField(passwordHashCalibrator, "strength", 7);
+
+        // Act
+        int result = passwordHashCalibrator.calibrate();
+
+        // Assert
+        assertEquals(7, result);
+    }
+
+
+    @Test
+    @DisplayName("Calibrating never goes below the minimum strength")
+    public void testCalibrateWithUnreachableTarget() {
+        // Arrange
+        ReflectionTestUtils.setField(passwordHashCalibrator, "targetLatencyMs", 0L);
+        ReflectionTestUtils.setField(passwordHashCalibrator, "minStrength", 4);
+        ReflectionTestUtils.setField(passwordHashCalibrator, "maxStrength", 8);
+
+        // Act
+        int result = passwordHashCalibrator.calibrate();
+
+        // Assert
+        assertEquals(4, result);
+    }
+
+
+    @Test
+    @DisplayName("Calibrating never goes above the maximum strength")
+    public void testCalibrateWithGenerousTarget() {
+        // Arrange
+        ReflectionTestUtils.setField(passwordHashCalibrator, "targetLatencyMs", 60_000L);
+        ReflectionTestUtils.setField(passwordHashCalibrator, "minStrength", 4);
+        ReflectionTestUtils.setField(passwordHashCalibrator, "maxStrength", 6);
+
+        // Act
+        int result = passwordHashCalibrator.calibrate();
+
+        // Assert
+        assertTrue(result >= 4 && result <= 6);
+        assertEquals(6, result);
+    }
+}
@@ -0,0 +1,139 @@
+package com.nisum.users.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Compares the SQL statements executed by an operation against a checked-in budget stored in
+ * {@code src/test/resources/sql-budgets/<name>.txt}. Each statement is reduced to its shape, the
+ * statement kind followed by the first table it touches (for example {@code insert phone}), so the
+ * budget captures round-trips without depending on column lists or aliases.
+ * <p>
+ * Budgets are rewritten from the recorded statements when the build runs with
+ * {@code -Dsql.budget.update=true}.
+ */
+public final class SqlBudget {
+
+    private static final String BUDGET_DIRECTORY = "sql-budgets";
+    private static final Path BUDGET_SOURCE = Path.of("src", "test", "resources", BUDGET_DIRECTORY);
+    private static final Pattern TABLE = Pattern.compile(
+            "^(?:select\\b.*?\\bfrom|insert\\s+into|update|delete\\s+from|merge\\s+into)\\s+(\\w+)", Pattern.DOTALL);
+
+    private SqlBudget() {
+    }
+
+    /**
+     * Asserts that the recorded statements have exactly the shapes listed in the named budget, failing
+     * with a line diff of the shapes and the full executed SQL otherwise.
+     *
+     * @param name the budget name, matching a file in the sql-budgets resource directory
+     * @param description a comment written at the top of the budget file when it is regenerated
+     * @param statements the SQL statements recorded for the operation
+     */
+    public static void assertMatches(String name, String description, List<String> statements) {
+        List<String> actual = statements.stream().map(SqlBudget::shape).toList();
+
+        if (Boolean.getBoolean("sql.budget.update")) {
+            write(name, description, actual);
+            return;
+        }
+
+        List<String> expected = read(name);
+        if (expected.equals(actual)) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder()
+                .append("SQL budget '").append(name).append("' changed: expected ")
+                .append(expected.size()).append(" statements, got ").append(actual.size()).append('\n')
+                .append(diff(expected, actual))
+                .append("Executed SQL:\n");
+        for (int i = 0; i < statements.size(); i++) {
+            message.append(String.format("%3d. %s%n", i + 1, statements.get(i)));
+        }
+        message.append("Run with -Dsql.budget.update=true to accept the new statements.");
+        fail(message.toString());
+    }
+
+    /**
+     * Reduces a SQL statement to its kind and the first table it touches.
+     *
+     * @param sql the SQL statement
+     * @return the statement shape, or the normalized statement if no table can be found
+     */
+    static String shape(String sql) {
+        String normalized = sql.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        Matcher matcher = TABLE.matcher(normalized);
+        if (!matcher.find()) {
+            return normalized;
+        }
+        return normalized.substring(0, normalized.indexOf(' ')) + " " + matcher.group(1);
+    }
+
+    private static List<String> read(String name) {
+        String resource = "/" + BUDGET_DIRECTORY + "/" + name + ".txt";
+        try (InputStream inputStream = SqlBudget.class.getResourceAsStream(resource)) {
+            if (inputStream == null) {
+                fail("Missing SQL budget " + resource + "; run with -Dsql.budget.update=true to create it.");
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read SQL budget " + resource, e);
+        }
+    }
+
+    private static void write(String name, String description, List<String> shapes) {
+        List<String> lines = new ArrayList<>(shapes.size() + 1);
+        lines.add("# " + description);
+        lines.addAll(shapes);
+        try {
+            Files.createDirectories(BUDGET_SOURCE);
+            Files.write(BUDGET_SOURCE.resolve(name + ".txt"), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write SQL budget " + name, e);
+        }
+    }
+
+    /**
+     * Builds a line diff based on the longest common subsequence of both lists, prefixing removed
+     * statements with {@code -}, added statements with {@code +} and unchanged ones with a space.
+     */
+    private static String diff(List<String> expected, List<String> actual) {
+        int[][] lcs = new int[expected.size() + 1][actual.size() + 1];
+        for (int i = expected.size() - 1; i >= 0; i--) {
+            for (int j = actual.size() - 1; j >= 0; j--) {
+                lcs[i][j] = expected.get(i).equals(actual.get(j))
+                        ? lcs[i + 1][j + 1] + 1
+                        : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+
+        StringBuilder diff = new StringBuilder();
+        int i = 0;
+        int j = 0;
+        while (i < expected.size() || j < actual.size()) {
+            if (i < expected.size() && j < actual.size() && expected.get(i).equals(actual.get(j))) {
+                diff.append("  ").append(expected.get(i++)).append('\n');
+                j++;
+            } else if (j < actual.size() && (i == expected.size() || lcs[i][j + 1] >= lcs[i + 1][j])) {
+                diff.append("+ ").append(actual.get(j++)).append('\n');
+            } else {
+                diff.append("- ").append(expected.get(i++)).append('\n');
+            }
+        }
+        return diff.toString();
+    }
+}
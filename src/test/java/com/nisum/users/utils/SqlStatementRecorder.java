@@ -0,0 +1,38 @@
+package com.nisum.users.utils;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate StatementInspector that records every SQL statement prepared by the session factory it is
+ * registered on, through {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ * Statements are recorded globally, so statements issued from asynchronous request processing are
+ * captured as well; tests using it turn off the scheduled tasks with {@code scheduling.enabled=false},
+ * so the statements of background pollers do not land in their budgets.
+ */
+public class SqlStatementRecorder implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+
+    public static void reset() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+    }
+
+    public static List<String> statements() {
+        synchronized (STATEMENTS) {
+            return List.copyOf(STATEMENTS);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.nisum.users.utils;
+
+import com.nisum.users.repositories.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Test class for WarmUpRunner, verifying that the application refuses traffic while the warm-up runs at
+ * startup, only reports itself ready once it has completed, and that the synthetic users inserted while
+ * warming up are rolled back. The readiness state is recorded from inside the warm-up each time it
+ * signs a token for a synthetic user.
+ */
+@SpringBootTest(properties = "warmup.iterations=10")
+class WarmUpRunnerTest {
+
+    private static final List<ReadinessState> READINESS_DURING_WARM_UP = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WarmUpRunner warmUpRunner;
+
+    @Test
+    @DisplayName("Warm-up: Should refuse traffic while warming up at startup")
+    void shouldRefuseTrafficDuringWarmUp() {
+        // Assert
+        assertFalse(READINESS_DURING_WARM_UP.isEmpty());
+        assertEquals(ReadinessState.REFUSING_TRAFFIC, READINESS_DURING_WARM_UP.get(0));
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+    }
+
+    @Test
+    @DisplayName("Warm-up: Should accept traffic after warming up without leaving synthetic users")
+    void shouldAcceptTrafficAfterWarmUp() throws Exception {
+        // Act
+        warmUpRunner.run();
+
+        // Assert
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+        assertTrue(userRepository.findAll().stream().noneMatch(user -> user.getEmail().startsWith("warmup-")));
+    }
+
+    @TestConfiguration
+    static class ReadinessRecorder {
+
+        @Bean
+        static BeanPostProcessor readinessRecordingJwtTokenUtil(ObjectProvider<ApplicationAvailability> availability) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof JwtTokenUtil jwtTokenUtil)) return bean;
+                    JwtTokenUtil spy = Mockito.spy(jwtTokenUtil);
+                    doAnswer(invocation -> {
+                        READINESS_DURING_WARM_UP.add(availability.getObject().getReadinessState());
+                        return invocation.callRealMethod();
+                    }).when(spy).generateToken(startsWith("warmup-"));
+                    return spy;
+                }
+            };
+        }
+    }
+}